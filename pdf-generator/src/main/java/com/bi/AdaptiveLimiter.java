@@ -0,0 +1,65 @@
+import java.time.Duration;
+
+/**
+ * Client side bound on the SonarQube requests in flight, adjusted AIMD style: the limit
+ * grows by one per round trip while the server keeps up, and is cut when it pushes back.
+ * Throttling (429/503) halves it; latency well above its long run average shrinks it
+ * slightly. A {@code Retry-After} pauses every caller, not only the one that got it.
+ */
+public class AdaptiveLimiter {
+    private static final double THROTTLED_DECREASE = 0.5;
+    private static final double SLOW_DECREASE = 0.9;
+    private static final double SLOW_TOLERANCE = 2.0;
+
+    private final int maxLimit;
+    private double limit;
+    private int inFlight;
+    private double shortLatency;
+    private double longLatency;
+    private long pausedUntil;
+
+    public AdaptiveLimiter(int maxLimit) {
+        this.maxLimit = maxLimit;
+        this.limit = maxLimit;
+    }
+
+    public synchronized void acquire() throws InterruptedException {
+        while (true) {
+            long pause = pausedUntil - System.nanoTime();
+            if (pause > 0) {
+                wait(Math.max(1, pause / 1_000_000));
+            } else if (inFlight < (int) limit) {
+                inFlight++;
+                return;
+            } else {
+                wait();
+            }
+        }
+    }
+
+    /** Ends a request that produced a response, {@code latencyNanos} measured up to its headers. */
+    public synchronized void release(boolean throttled, long latencyNanos) {
+        if (throttled) {
+            limit = Math.max(1, limit * THROTTLED_DECREASE);
+        } else {
+            shortLatency = shortLatency == 0 ? latencyNanos : shortLatency * 0.7 + latencyNanos * 0.3;
+            longLatency = longLatency == 0 ? latencyNanos : longLatency * 0.95 + latencyNanos * 0.05;
+            if (shortLatency > longLatency * SLOW_TOLERANCE) {
+                limit = Math.max(1, limit * SLOW_DECREASE);
+            } else {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+        release();
+    }
+
+    /** Ends a request that failed without a response. */
+    public synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    public synchronized void pause(Duration duration) {
+        pausedUntil = Math.max(pausedUntil, System.nanoTime() + duration.toNanos());
+    }
+}
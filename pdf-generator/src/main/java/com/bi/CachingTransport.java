@@ -0,0 +1,317 @@
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of SonarQube responses.
+ * <p>
+ * Once the analysis being reported is known ({@link #useAnalysis}), entries are keyed by
+ * server, project, branch, analysis date and call: a new analysis never sees an old
+ * entry, so a repeated report of an unchanged analysis is served without touching the
+ * network. Calls made before that, i.e. navigation/component, are revalidated with
+ * conditional requests when the server sends an {@code ETag} or {@code Last-Modified}.
+ * The cache is bounded and the least recently used entries are evicted. Storing is best
+ * effort: a response that was read successfully never fails because it could not be cached.
+ */
+public class CachingTransport implements SonarTransport {
+    private static final String BODY = ".body";
+    private static final String META = ".meta";
+    private static final String TEMP = ".tmp";
+    /** Eviction goes below the limit, so that the next stores do not list the directory again. */
+    private static final double EVICT_TO = 0.9;
+    /** Temporary files older than this were left by a run that crashed; younger ones may be in use. */
+    private static final Duration STALE_TEMP = Duration.ofHours(1);
+
+    private final SonarTransport delegate;
+    private final String server;
+    private final Path directory;
+    private final long maxBytes;
+    private volatile String analysis;
+    // Size of the entries as last counted, plus what was stored since; guarded by this
+    private long bytes;
+
+    public CachingTransport(SonarTransport delegate, String server, Path directory, long maxBytes) throws IOException {
+        this.delegate = delegate;
+        this.server = server;
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+        deleteStaleTemps();
+        evict();
+    }
+
+    public void useAnalysis(String project, String branch, String analysisDate) {
+        this.analysis = project + "\n" + branch + "\n" + analysisDate;
+    }
+
+    @Override
+    public SonarResponse get(String path, Map<String, String> headers) throws IOException, InterruptedException {
+        String scope = analysis;
+        if (scope == null) {
+            return revalidate(path, headers);
+        }
+
+        Path entry = entry(scope, path);
+        SonarResponse cached = open(entry);
+        if (cached != null) {
+            return cached;
+        }
+        SonarResponse response = delegate.get(path, headers);
+        return response.statusCode() == 200 ? store(entry, null, response) : response;
+    }
+
+    private SonarResponse revalidate(String path, Map<String, String> headers) throws IOException, InterruptedException {
+        Path entry = entry("", path);
+        Properties validators = readValidators(entry);
+
+        Map<String, String> conditional = new HashMap<>(headers);
+        if (validators != null) {
+            if (validators.containsKey("etag")) {
+                conditional.put("If-None-Match", validators.getProperty("etag"));
+            }
+            if (validators.containsKey("last-modified")) {
+                conditional.put("If-Modified-Since", validators.getProperty("last-modified"));
+            }
+        }
+
+        SonarResponse response = delegate.get(path, conditional);
+        if (response.statusCode() == 304 && validators != null) {
+            response.close();
+            SonarResponse cached = open(entry);
+            if (cached != null) {
+                return cached;
+            }
+            return delegate.get(path, headers);
+        }
+        if (response.statusCode() == 200) {
+            Properties received = new Properties();
+            response.headers().firstValue("ETag").ifPresent(value -> received.setProperty("etag", value));
+            response.headers().firstValue("Last-Modified").ifPresent(value -> received.setProperty("last-modified", value));
+            if (!received.isEmpty()) {
+                return store(entry, received, response);
+            }
+        }
+        return response;
+    }
+
+    private SonarResponse open(Path entry) throws IOException {
+        InputStream body;
+        try {
+            body = Files.newInputStream(entry);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        try {
+            Files.setLastModifiedTime(entry, FileTime.from(Instant.now()));
+        } catch (NoSuchFileException ignored) {
+            // Evicted by another run since, the open file can still be read
+        }
+        return new SonarResponse(200, SonarResponse.headers(Map.of()), body);
+    }
+
+    private Properties readValidators(Path entry) throws IOException {
+        Path meta = sibling(entry, META);
+        if (!Files.exists(meta) || !Files.exists(entry)) {
+            return null;
+        }
+        Properties validators = new Properties();
+        try (Reader reader = Files.newBufferedReader(meta, StandardCharsets.UTF_8)) {
+            validators.load(reader);
+        }
+        return validators;
+    }
+
+    private SonarResponse store(Path entry, Properties validators, SonarResponse response) throws IOException {
+        Path temp = Files.createTempFile(directory, entry.getFileName().toString(), TEMP);
+        return new SonarResponse(response.statusCode(), response.headers(), new Tee(response, temp, entry, validators));
+    }
+
+    /**
+     * Hands the body through while copying it to a temporary file. The copy is published when
+     * the body is closed after the response was committed, i.e. the caller could read it, and
+     * deleted otherwise, so a body that fails to parse is never served again.
+     */
+    private class Tee extends FilterInputStream implements SonarResponse.Committable {
+        private final SonarResponse response;
+        private final OutputStream copy;
+        private final Path temp;
+        private final Path entry;
+        private final Properties validators;
+        private volatile boolean committed;
+
+        Tee(SonarResponse response, Path temp, Path entry, Properties validators) throws IOException {
+            super(response.body());
+            this.response = response;
+            this.copy = Files.newOutputStream(temp);
+            this.temp = temp;
+            this.entry = entry;
+            this.validators = validators;
+        }
+
+        @Override
+        public void commit() {
+            committed = true;
+            response.commit();
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                copy.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                copy.write(buffer, offset, n);
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            boolean complete = false;
+            try {
+                if (committed) {
+                    // Parsers stop at the closing brace, keep whatever follows it too
+                    transferTo(OutputStream.nullOutputStream());
+                    complete = true;
+                }
+            } finally {
+                copy.close();
+                super.close();
+                if (complete) {
+                    try {
+                        publish(temp, entry, validators);
+                    } catch (IOException e) {
+                        System.err.println("Warning: could not cache a response in " + directory + ": " + e);
+                        Files.deleteIfExists(temp);
+                    }
+                } else {
+                    Files.deleteIfExists(temp);
+                }
+            }
+        }
+    }
+
+    private void publish(Path temp, Path entry, Properties validators) throws IOException {
+        if (validators != null) {
+            try (Writer writer = Files.newBufferedWriter(sibling(entry, META), StandardCharsets.UTF_8)) {
+                validators.store(writer, null);
+            }
+        }
+        long size = Files.size(temp);
+        long replaced = sizeIfExists(entry);
+        try {
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+        }
+        synchronized (this) {
+            bytes += size - replaced;
+            if (bytes > maxBytes) {
+                evict();
+            }
+        }
+    }
+
+    /**
+     * Counts the entries and, beyond the size limit, deletes the least recently used ones.
+     * Files that another run sharing the directory deleted meanwhile are skipped.
+     */
+    private synchronized void evict() throws IOException {
+        List<Path> entries = new ArrayList<>();
+        Map<Path, BasicFileAttributes> attributes = new HashMap<>();
+        long total = 0;
+        for (Path file : list(BODY)) {
+            try {
+                BasicFileAttributes read = Files.readAttributes(file, BasicFileAttributes.class);
+                attributes.put(file, read);
+                entries.add(file);
+                total += read.size();
+            } catch (NoSuchFileException ignored) {
+                // Evicted by another run
+            }
+        }
+        if (total > maxBytes) {
+            entries.sort(Comparator.comparing(file -> attributes.get(file).lastModifiedTime()));
+            for (Path file : entries) {
+                if (total <= maxBytes * EVICT_TO) {
+                    break;
+                }
+                total -= attributes.get(file).size();
+                Files.deleteIfExists(file);
+                Files.deleteIfExists(sibling(file, META));
+            }
+        }
+        bytes = total;
+    }
+
+    private void deleteStaleTemps() throws IOException {
+        FileTime staleBefore = FileTime.from(Instant.now().minus(STALE_TEMP));
+        for (Path file : list(TEMP)) {
+            try {
+                if (Files.getLastModifiedTime(file).compareTo(staleBefore) < 0) {
+                    Files.deleteIfExists(file);
+                }
+            } catch (NoSuchFileException ignored) {
+                // Published or deleted by the run that wrote it
+            }
+        }
+    }
+
+    private List<Path> list(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(suffix)).toList();
+        }
+    }
+
+    private static long sizeIfExists(Path file) throws IOException {
+        try {
+            return Files.size(file);
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    private Path entry(String scope, String path) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((server + "\n" + scope + "\n" + path).getBytes(StandardCharsets.UTF_8));
+            return directory.resolve(HexFormat.of().formatHex(hash) + BODY);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Path sibling(Path entry, String suffix) {
+        String name = entry.getFileName().toString();
+        return entry.resolveSibling(name.substring(0, name.length() - BODY.length()) + suffix);
+    }
+}
@@ -0,0 +1,44 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns component keys: each distinct key gets an int id, and its file path (the key
+ * without the {@code project:} prefix) is derived once, however many findings it has.
+ * Safe for use by several fetch threads; ids depend on arrival order, so anything shown
+ * is ordered by {@link #path}, never by id.
+ * <p>
+ * Paths are looked up on every location comparison, so lookups take no lock: the array
+ * is copied when it grows and published again after every new path, before its id is.
+ */
+public class ComponentDictionary {
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] paths = new String[64];
+    // Guarded by this
+    private int size;
+
+    public int id(String component) {
+        Integer id = ids.get(component);
+        if (id != null) {
+            return id;
+        }
+        return ids.computeIfAbsent(component, key -> add(key.contains(":") ? key.split(":", 2)[1].trim() : key));
+    }
+
+    private synchronized int add(String path) {
+        String[] grown = size < paths.length ? paths : Arrays.copyOf(paths, paths.length * 2);
+        grown[size] = path;
+        paths = grown;
+        return size++;
+    }
+
+    public String path(int id) {
+        return paths[id];
+    }
+
+    /** Orders locations by path, then line. */
+    public int compare(int file, int line, int otherFile, int otherLine) {
+        int byPath = file == otherFile ? 0 : path(file).compareTo(path(otherFile));
+        return byPath != 0 ? byPath : Integer.compare(line, otherLine);
+    }
+}
@@ -1,12 +1,5 @@
 import java.io.IOException;
-import java.net.URI;
-import java.net.URLEncoder;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,29 +12,8 @@ import org.json.JSONObject;
 
 public class GenerateCNESReport {
     
-    public static JSONObject fetchDataFromURL(String url, String call, String token, String projectKey) throws IOException, InterruptedException {
-        HttpClient client = HttpClient.newHttpClient();
-        String encodedProjectKey = URLEncoder.encode(projectKey, StandardCharsets.UTF_8);
-        String fullURL = String.format("%s%s%s", url, call, encodedProjectKey);
-
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(fullURL))
-                .header("Authorization", "Bearer " + token)
-                .build();
-
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-
-        JSONObject json = new JSONObject(response.body());
-
-        if (response.statusCode() >= 200 && response.statusCode() < 300) {
-            return json;
-        } else {
-            throw new IOException("Error al obtener datos de la URL: Código de estado " + response.statusCode() + ", Cuerpo: " + response.body());
-        }
-    }
-
     @SuppressWarnings("empty-statement")
-    public static void main(String[] args) throws IOException {
+    public static void main(String[] args) throws IOException, InterruptedException {
         if (args.length < 3) {
             System.err.println("Usage: java -jar target/pdf-generator-1.0-SNAPSHOT-jar-with-dependencies.jar <apiUrl> <authToken> <project>");
             System.exit(1);
@@ -50,16 +22,39 @@ public class GenerateCNESReport {
         String authToken = args[1]; 
         String project = args[2]; 
         
-        // We create the initial pdf
-        PDFReportWriter pdf = new PDFReportWriter();
-        JSONObject data = null;
-        JSONArray dataArray = null;
+        ReportConfig config = ReportConfig.fromSystemProperties();
+        SonarClient client = new SonarClient(apiUrl, authToken, config);
+
+        // Fetch everything before rendering
+        ReportData report = null;
         try {
-            
-            data = fetchDataFromURL(apiUrl, "api/navigation/component?component=", authToken, project);
+            report = new ReportFetcher(client, project, config).fetchAll();
         } catch (IOException | InterruptedException e) {
             System.err.println("Error at doing the HTTP petition: " + e.getMessage());
+        } finally {
+            // Completes a recording even when the fetch failed, that is the run worth replaying
+            client.close();
         }
+        if (report == null) {
+            System.exit(1);
+        }
+        if (config.isTransferStats()) {
+            client.getTransferStats().print(System.err);
+        }
+
+        // Sections are written at the same time, each into its own document, then merged
+        ReportData fetched = report;
+        PDFReportWriter pdf = SectionRenderer.render(config, List.of(
+                section -> addSummary(section, fetched),
+                section -> addSecurityHotspots(section, fetched, config, apiUrl),
+                section -> addIssues(section, fetched, config, apiUrl)));
+        pdf.insertIndexAtBeginning();
+        pdf.addCoverPage("SonarQube Report", "Generated for "+ project);
+        pdf.save("reportes.pdf");
+    }
+
+    private static void addSummary(PDFReportWriter pdf, ReportData report) throws IOException {
+        JSONObject data = report.component();
 
         String name = data.getString("name");
 
@@ -112,49 +107,15 @@ public class GenerateCNESReport {
         String[] headers = { "Reliability", "Security", "Security Review", "Maintainability" };
         List<String[]> rows = new ArrayList<>();
 
-        data = null;
-        try {
-            
-            data = fetchDataFromURL(apiUrl, "api/measures/component?metricKeys=reliability_rating,software_quality_maintainability_rating,security_rating,security_review_rating&component=", authToken, project);
-            data = data.getJSONObject("component");
-            
-        } catch (IOException | InterruptedException e) {
-            System.err.println("Error at doing the HTTP petition: " + e.getMessage());
-        }
-
-        JSONArray measuresList = data.getJSONArray("measures");
-        String[] measures = new String[4];
-        for (int i = 0; i < measuresList.length(); i++) {
-            JSONObject measure = measuresList.getJSONObject(i);
-            String aux = "";
-            switch (measure.getString("value")) {
-                case "1.0": aux = "A"; break;
-                case "2.0": aux = "B"; break;
-                case "3.0": aux = "C"; break;
-                case "4.0": aux = "D"; break;
-                case "5.0": aux = "E"; break;
-                default:
-                    throw new AssertionError();
-            }
-            measures[i] = aux;
-        }
-
-
-        rows.add(measures);
+        Measures measures = report.measures();
+        rows.add(measures.row(Metric.RELIABILITY_RATING, Metric.SECURITY_RATING, Metric.SECURITY_REVIEW_RATING, Metric.MAINTAINABILITY_RATING));
         pdf.drawTable(500, headers, rows);
 
         // QUALITY GATE STATUS
         pdf.tittle3Font();
         pdf.addLine("QUALITY GATE STATUS");
 
-        try {
-            
-            data = fetchDataFromURL(apiUrl, "api/qualitygates/project_status?projectKey=", authToken, project);
-            data = data.getJSONObject("projectStatus");
-            
-        } catch (IOException | InterruptedException e) {
-            System.err.println("Error at doing the HTTP petition: " + e.getMessage());
-        }
+        data = report.projectStatus();
 
         pdf.bodyFont();
         pdf.addLine("| Quality Gate Status | " + data.getString("status") + " |");
@@ -164,44 +125,11 @@ public class GenerateCNESReport {
         pdf.tittle3Font();
         pdf.addLine("METRICS");
 
-        try {
-            
-            data = fetchDataFromURL(apiUrl, "api/measures/component?metricKeys=duplicated_lines_density,comment_lines_density,ncloc,complexity,cognitive_complexity,coverage&component=", authToken, project);
-            data = data.getJSONObject("component");
-            
-        } catch (IOException | InterruptedException e) {
-            System.err.println("Error at doing the HTTP petition: " + e.getMessage());
-        }
-        
         headers = new String[] { "Coverage", "Duplications", "Comment Density", "Lines of Code", "Cyclomatic Complexity", "Cognitive Complexity" };
         rows = new ArrayList<>();
 
-        Map<String, Integer> metricIndex = new HashMap<>();
-        metricIndex.put("coverage", 0);
-        metricIndex.put("duplicated_lines_density", 1);
-        metricIndex.put("comment_lines_density", 2);
-        metricIndex.put("ncloc", 3);
-        metricIndex.put("complexity", 4);
-        metricIndex.put("cognitive_complexity", 5);
-        measuresList = data.getJSONArray("measures");
-        measures = new String[6];
-
-        for (int i = 0; i < measuresList.length(); i++) {
-            JSONObject measure = measuresList.getJSONObject(i);
-            String metric = measure.getString("metric");
-            String value = measure.getString("value");
-
-            if (metricIndex.containsKey(metric)) {
-                int index = metricIndex.get(metric);
-                if (metric.contains("density") || metric.equals("coverage")) {
-                    measures[index] = value + "%";
-                } else {
-                    measures[index] = value;
-                }
-            }
-        }
-        int totalLinesOfCode = Integer.parseInt(measures[3]);
-        rows.add(measures);
+        rows.add(measures.row(Metric.COVERAGE, Metric.DUPLICATED_LINES_DENSITY, Metric.COMMENT_LINES_DENSITY,
+                Metric.NCLOC, Metric.COMPLEXITY, Metric.COGNITIVE_COMPLEXITY));
         pdf.drawTable(500, headers, rows);
 
         
@@ -209,110 +137,38 @@ public class GenerateCNESReport {
         pdf.tittle3Font();
         pdf.addLine("TESTS");
 
-        try {
-            
-            data = fetchDataFromURL(apiUrl, "api/measures/component?metricKeys=duplicated_lines_density,comment_lines_density,ncloc,complexity,cognitive_complexity,coverage&component=", authToken, project);
-            data = data.getJSONObject("component");
-            
-        } catch (IOException | InterruptedException e) {
-            System.err.println("Error at doing the HTTP petition: " + e.getMessage());
-        }
-        
         headers = new String[] { "Total", "Success Rate", "Skipped", "Errors", "Failures" };
         rows = new ArrayList<>();
 
-        metricIndex = new HashMap<>();
-        metricIndex.put("tests", 0);
-        metricIndex.put("test_success_density", 1);
-        metricIndex.put("skipped_tests", 2);
-        metricIndex.put("test_errors", 3);
-        metricIndex.put("test_failures", 4);
-
-        measuresList = data.getJSONArray("measures");
-        measures = new String[5];
-        Arrays.fill(measures, "0");
-        measures[1] = "0%";
-        for (int i = 0; i < measuresList.length(); i++) {
-            JSONObject measure = measuresList.getJSONObject(i);
-            String metric = measure.getString("metric");
-            String value = measure.getString("value");
-
-            if (metricIndex.containsKey(metric)) {
-                int index = metricIndex.get(metric);
-                if (metric.equals("test_success_density")) {
-                    measures[index] = value + "%";
-                } else {
-                    measures[index] = value;
-                }
-            }
-        }
-        
-        rows.add(measures);
+        rows.add(measures.row(Metric.TESTS, Metric.TEST_SUCCESS_DENSITY, Metric.SKIPPED_TESTS, Metric.TEST_ERRORS, Metric.TEST_FAILURES));
         pdf.drawTable(500, headers, rows);
 
         // DETAILED TECHNICAL DEBTS
         pdf.tittle3Font();
         pdf.addLine("DETAILED TECHNICAL DEBTS");
 
-        try {
-            
-            data = fetchDataFromURL(apiUrl, "api/measures/component?metricKeys=reliability_remediation_effort,security_remediation_effort,sqale_index&component=", authToken, project);
-            data = data.getJSONObject("component");
-            
-        } catch (IOException | InterruptedException e) {
-            System.err.println("Error at doing the HTTP petition: " + e.getMessage());
-        }
-        
         headers = new String[] { "Reliability", "Security", "Maintainability", "Total" };
         rows = new ArrayList<>();
 
-        metricIndex = new HashMap<>();
-        metricIndex.put("reliability_remediation_effort", 0);
-        metricIndex.put("security_remediation_effort", 1);
-        metricIndex.put("sqale_index", 2);
-
-        measuresList = data.getJSONArray("measures");
-        measures = new String[4];
-        Arrays.fill(measures, "0d 0h 0m");
-        int totalmins = 0;
-        for (int i = 0; i < measuresList.length(); i++) {
-            JSONObject measure = measuresList.getJSONObject(i);
-            String metric = measure.getString("metric");
-            String value = measure.getString("value");
-            if (metricIndex.containsKey(metric)) {
-                int index = metricIndex.get(metric);
-                int minutes = Integer.parseInt(value);
-                totalmins += minutes;
-
-                measures[index] = minsToDaysHoursMins(minutes);
-            }
-        }
-        measures[3] = minsToDaysHoursMins(totalmins);
-
-        rows.add(measures);
+        int totalmins = measures.intValue(Metric.RELIABILITY_REMEDIATION_EFFORT)
+                + measures.intValue(Metric.SECURITY_REMEDIATION_EFFORT)
+                + measures.intValue(Metric.SQALE_INDEX);
+        rows.add(new String[] {
+                measures.formatted(Metric.RELIABILITY_REMEDIATION_EFFORT),
+                measures.formatted(Metric.SECURITY_REMEDIATION_EFFORT),
+                measures.formatted(Metric.SQALE_INDEX),
+                Metric.minsToDaysHoursMins(totalmins) });
         pdf.drawTable(500, headers, rows);
 
         // LINES PER LANGUAGE
         pdf.tittle3Font();
         pdf.addLine("LINES PER LANGUAGE");
 
-        try {
-            
-            data = fetchDataFromURL(apiUrl, "api/measures/component?metricKeys=ncloc_language_distribution&component=", authToken, project);
-            data = data.getJSONObject("component");
-            
-        } catch (IOException | InterruptedException e) {
-            System.err.println("Error at doing the HTTP petition: " + e.getMessage());
-        }
-        
         headers = new String[] { "Language", "Number of Lines", "Total Percent" };
         rows = new ArrayList<>();
 
-        measuresList = data.getJSONArray("measures");
-
-        JSONObject measure = measuresList.getJSONObject(0);
-
-        String rawLanguages = measure.getString("value");
+        int totalLinesOfCode = measures.intValue(Metric.NCLOC);
+        String rawLanguages = measures.value(Metric.NCLOC_LANGUAGE_DISTRIBUTION);
 
         for (String pair : rawLanguages.split(";")) {
             String[] parts = pair.split("=");
@@ -324,7 +180,9 @@ public class GenerateCNESReport {
         }
 
         pdf.drawTable(500, headers, rows);
+    }
 
+    private static void addSecurityHotspots(PDFReportWriter pdf, ReportData report, ReportConfig config, String apiUrl) throws IOException {
         // SECURITY HOTSPOTS
 
         pdf.tittle2Font();
@@ -332,17 +190,10 @@ public class GenerateCNESReport {
         pdf.tittle3Font();
         pdf.addLine("SECURITY HOTSPOTS COUNT BY CATEGORY AND PRIORITY");
 
-        try {
-            
-            data = fetchDataFromURL(apiUrl, "api/security_reports/show?standard=sonarsourceSecurity&project=", authToken, project);
-            dataArray = data.getJSONArray("categories");
-            
-        } catch (IOException | InterruptedException e) {
-            System.err.println("Error at doing the HTTP petition: " + e.getMessage());
-        }
+        JSONArray dataArray = report.securityCategories();
         
-        headers = new String[] { "Categories", "Security", "Security Hotspots" };
-        rows = new ArrayList<>();
+        String[] headers = { "Categories", "Security", "Security Hotspots" };
+        List<String[]> rows = new ArrayList<>();
         Map<String,String> categories = new HashMap<>();
         categories.put("buffer-overflow", "Buffer Overflow");
         categories.put("sql-injection", "SQL Injection");
@@ -398,220 +249,66 @@ public class GenerateCNESReport {
         pdf.addLine("SECURITY HOTSPOT LIST");
 
 
-        try {
-            int pageIndex = 1;
-            int total = Integer.MAX_VALUE;
-            dataArray = new JSONArray();
-            while ((pageIndex - 1) * 500 < total) {
-                data = fetchDataFromURL(
-                    apiUrl,
-                    String.format("api/hotspots/search?status=TO_REVIEW&ps=500&pageIndex=%d&project=", pageIndex),
-                    authToken,
-                    project
-                );
-
-                JSONArray currentPageHotspots = data.getJSONArray("hotspots");
-                for (int i = 0; i < currentPageHotspots.length(); i++) {
-                    dataArray.put(currentPageHotspots.getJSONObject(i));
-                }
-
-                if (data.has("paging")) {
-                    total = data.getJSONObject("paging").getInt("total");
-                }
-
-                pageIndex++;
-            }
-
-        } catch (IOException | InterruptedException e) {
-            System.err.println("Error at doing the HTTP petition: " + e.getMessage());
-        }
-
-        Map<String, JSONObject> hotspotMap = new HashMap<>();
-
-        for (int i = 0; i < dataArray.length(); i++) {
-            JSONObject originalObj = dataArray.getJSONObject(i);
-            String ruleKey = originalObj.getString("ruleKey");
-
-            if (hotspotMap.containsKey(ruleKey)) {
-                // It exists
-                JSONObject existing = hotspotMap.get(ruleKey);
-                int currentCount = existing.getInt("count");
-                existing.put("count", currentCount + 1);
-                String currentLocations = existing.getString("location");
-                String file = originalObj.getString("component");
-                file = file.contains(":") ? file.split(":", 2)[1].trim() : file;
-                JSONObject textLines = originalObj.getJSONObject("textRange");
-                String textLine = Integer.toString(textLines.getInt("startLine"));
-                existing.put("location", currentLocations + " | " + file + ": " + textLine);
-
-            } else {
-                // Is new
-                JSONObject newObj = new JSONObject();
-                JSONObject textLines = originalObj.getJSONObject("textRange");
-                String file = originalObj.getString("component");
-                file = file.contains(":") ? file.split(":", 2)[1].trim() : file;
-                String textLine = Integer.toString(textLines.getInt("startLine"));
-                newObj.put("ruleKey", ruleKey);
-                newObj.put("count", 1);
-                newObj.put("vulnerabilityProbability", originalObj.getString("vulnerabilityProbability"));
-                newObj.put("message", originalObj.getString("message"));
-                newObj.put("location", file + ": " + textLine);
-                
-
-                hotspotMap.put(ruleKey, newObj);
-            }
+        List<RuleGroup<Hotspot>> hotspotGroups = report.hotspots().top(config.getMaxRuleGroups());
+        for (RuleGroup<Hotspot> group : hotspotGroups) {
+            Hotspot hotspot = group.getFinding();
+            pdf.startBulletEntry(hotspot.message());
+            pdf.addIndentedLine("Vulnerability Probability", hotspot.vulnerabilityProbability());
+            pdf.addIndentedLine("Count", Integer.toString(group.getCount()));
+            pdf.addIndentedLine("Locations", group.locationsText());
+            pdf.addIndentedHyperlink("Root Cause/How to fix", apiUrl+"coding_rules?q="+group.getRuleKey()+"&open="+group.getRuleKey(),group.getRuleKey());
         }
-        // Convert map to JSONArray
-        JSONArray hotspotArray = new JSONArray(hotspotMap.values());
-        for (int i = 0; i < hotspotArray.length(); i++) {
-            JSONObject hotspotObject = hotspotArray.getJSONObject(i);
-            pdf.startBulletEntry(hotspotObject.getString("message"));
-            pdf.addIndentedLine("Vulnerability Probability", hotspotObject.getString("vulnerabilityProbability"));
-            pdf.addIndentedLine("Count", Integer.toString(hotspotObject.getInt("count")));
-            pdf.addIndentedLine("Locations", hotspotObject.getString("location"));
-            pdf.addIndentedHyperlink("Root Cause/How to fix", apiUrl+"coding_rules?q="+hotspotObject.getString("ruleKey")+"&open="+hotspotObject.getString("ruleKey"),hotspotObject.getString("ruleKey"));
-        }
-
-        // -----------------------------
+        addMoreRulesLine(pdf, report.hotspots(), hotspotGroups);
+    }
 
+    private static void addIssues(PDFReportWriter pdf, ReportData report, ReportConfig config, String apiUrl) throws IOException {
         // ISSUES
         pdf.tittle2Font();
         pdf.addLine("ISSUES");
         pdf.tittle3Font();
         pdf.addLine("ISSUES COUNT BY SEVERITY AND TYPES");
 
-        headers = new String[] { "Type / Severity", "INFO", "MINOR", "MAJOR", "CRITICAL", "BLOCKER" };
-        rows = new ArrayList<>();
-
-        try {
-            
-            data = fetchDataFromURL(apiUrl, "api/issues/search?types=BUG&facets=severities&componentKeys=", authToken, project);
-            
-        } catch (IOException | InterruptedException e) {
-            System.err.println("Error at doing the HTTP petition: " + e.getMessage());
-        }
-
-        JSONArray bugArray = data.getJSONArray("facets");
-        bugArray = bugArray.getJSONObject(0).getJSONArray("values");
-        rows.add(new String[]{ "Bug", String.valueOf(bugArray.getJSONObject(4).getInt("count")), String.valueOf(bugArray.getJSONObject(0).getInt("count")), String.valueOf(bugArray.getJSONObject(1).getInt("count")), String.valueOf(bugArray.getJSONObject(2).getInt("count")), String.valueOf(bugArray.getJSONObject(3).getInt("count")) });
-
-        try {
-            
-            data = fetchDataFromURL(apiUrl, "api/issues/search?types=VULNERABILITY&facets=severities&componentKeys=", authToken, project);
-            
-        } catch (IOException | InterruptedException e) {
-            System.err.println("Error at doing the HTTP petition: " + e.getMessage());
-        }
+        String[] headers = { "Type / Severity", "INFO", "MINOR", "MAJOR", "CRITICAL", "BLOCKER" };
+        List<String[]> rows = new ArrayList<>();
 
-        JSONArray vulArray = data.getJSONArray("facets");
-        vulArray = vulArray.getJSONObject(0).getJSONArray("values");
-        rows.add(new String[]{ "Vulnerability", String.valueOf(vulArray.getJSONObject(4).getInt("count")), String.valueOf(vulArray.getJSONObject(0).getInt("count")), String.valueOf(vulArray.getJSONObject(1).getInt("count")), String.valueOf(vulArray.getJSONObject(2).getInt("count")), String.valueOf(vulArray.getJSONObject(3).getInt("count")) });
+        IssueMatrix issueMatrix = report.issueMatrix();
+        rows.add(issueMatrix.row("Bug", "BUG"));
+        rows.add(issueMatrix.row("Vulnerability", "VULNERABILITY"));
+        rows.add(issueMatrix.row("Code Smell", "CODE_SMELL"));
 
-        try {
-            
-            data = fetchDataFromURL(apiUrl, "api/issues/search?types=CODE_SMELL&facets=severities&componentKeys=", authToken, project);
-            
-        } catch (IOException | InterruptedException e) {
-            System.err.println("Error at doing the HTTP petition: " + e.getMessage());
-        }
-
-        JSONArray codeSmellArray = data.getJSONArray("facets");
-        codeSmellArray = codeSmellArray.getJSONObject(0).getJSONArray("values");
-        rows.add(new String[]{ "Code Smell", String.valueOf(codeSmellArray.getJSONObject(4).getInt("count")), String.valueOf(codeSmellArray.getJSONObject(0).getInt("count")), String.valueOf(codeSmellArray.getJSONObject(1).getInt("count")), String.valueOf(codeSmellArray.getJSONObject(2).getInt("count")), String.valueOf(codeSmellArray.getJSONObject(3).getInt("count")) });
-        
         pdf.drawTable(500, headers, rows);
 
         // ISSUES LIST
         pdf.tittle3Font();
         pdf.addLine("ISSUES LIST");
 
-        try {
-            int pageIndex = 1;
-            int total = Integer.MAX_VALUE;
-            dataArray = new JSONArray();
-            while ((pageIndex - 1) * 500 < total) {
-                data = fetchDataFromURL(
-                    apiUrl,
-                    String.format("api/issues/search?issueStatuses=OPEN&ps=500&pageIndex=%d&componentKeys=", pageIndex),
-                    authToken,
-                    project
-                );
-
-                JSONArray currentPageHotspots = data.getJSONArray("issues");
-                for (int i = 0; i < currentPageHotspots.length(); i++) {
-                    dataArray.put(currentPageHotspots.getJSONObject(i));
-                }
-
-                if (data.has("paging")) {
-                    total = data.getJSONObject("paging").getInt("total");
-                }
-
-                pageIndex++;
-            }
-
-        } catch (IOException | InterruptedException e) {
-            System.err.println("Error at doing the HTTP petition: " + e.getMessage());
+        List<RuleGroup<Issue>> issueGroups = report.issues().top(config.getMaxRuleGroups());
+        for (RuleGroup<Issue> group : issueGroups) {
+            Issue issue = group.getFinding();
+            pdf.startBulletEntry(issue.message());
+            pdf.addIndentedLine("Type", issue.type());
+            pdf.addIndentedLine("Severity", issue.severity());
+            pdf.addIndentedLine("Count", Integer.toString(group.getCount()));
+            pdf.addIndentedLine("Locations", group.locationsText());
+            pdf.addIndentedHyperlink("Root Cause/How to fix", apiUrl+"coding_rules?q="+group.getRuleKey()+"&open="+group.getRuleKey(),group.getRuleKey());
         }
+        addMoreRulesLine(pdf, report.issues(), issueGroups);
+    }
 
-        Map<String, JSONObject> issuesMap = new HashMap<>();
-
-        for (int i = 0; i < dataArray.length(); i++) {
-            JSONObject originalObj = dataArray.getJSONObject(i);
-            String ruleKey = originalObj.getString("rule");
-
-            if (issuesMap.containsKey(ruleKey)) {
-                // It exists
-                JSONObject existing = issuesMap.get(ruleKey);
-                int currentCount = existing.getInt("count");
-                existing.put("count", currentCount + 1);
-                String currentLocations = existing.getString("location");
-                String file = originalObj.getString("component");
-                file = file.contains(":") ? file.split(":", 2)[1].trim() : file;
-                JSONObject textLines = originalObj.getJSONObject("textRange");
-                String textLine = Integer.toString(textLines.getInt("startLine"));
-                existing.put("location", currentLocations + " | " + file + ": " + textLine);
-
-            } else {
-                // Is new
-                JSONObject newObj = new JSONObject();
-                JSONObject textLines = originalObj.getJSONObject("textRange");
-                String file = originalObj.getString("component");
-                file = file.contains(":") ? file.split(":", 2)[1].trim() : file;
-                String textLine = Integer.toString(textLines.getInt("startLine"));
-                newObj.put("ruleKey", ruleKey);
-                newObj.put("count", 1);
-                newObj.put("severity", originalObj.getString("severity"));
-                newObj.put("message", originalObj.getString("message"));
-                newObj.put("type", originalObj.getString("type"));
-                newObj.put("location", file + ": " + textLine);
-
-                issuesMap.put(ruleKey, newObj);
+    /** Tells how many rules, and findings, were left out of a list cut at the configured maximum. */
+    private static void addMoreRulesLine(PDFReportWriter pdf, RuleAggregator<?> aggregator, List<? extends RuleGroup<?>> listed) throws IOException {
+        int hiddenRules = aggregator.groups().size() - listed.size();
+        if (hiddenRules > 0) {
+            int hiddenFindings = 0;
+            for (RuleGroup<?> group : aggregator.groups()) {
+                hiddenFindings += group.getCount();
             }
+            for (RuleGroup<?> group : listed) {
+                hiddenFindings -= group.getCount();
+            }
+            pdf.bodyFont();
+            pdf.addLine("And " + hiddenRules + " more rules with " + hiddenFindings + " findings.");
         }
-
-        // Map to JsonArray
-        JSONArray issuesArray = new JSONArray(issuesMap.values());
-
-        for (int i = 0; i < issuesArray.length(); i++) {
-            JSONObject issuesObject = issuesArray.getJSONObject(i);
-            pdf.startBulletEntry(issuesObject.getString("message"));
-            pdf.addIndentedLine("Type", issuesObject.getString("type"));
-            pdf.addIndentedLine("Severity", issuesObject.getString("severity"));
-            pdf.addIndentedLine("Count", Integer.toString(issuesObject.getInt("count")));
-            pdf.addIndentedLine("Locations", issuesObject.getString("location"));
-            pdf.addIndentedHyperlink("Root Cause/How to fix", apiUrl+"coding_rules?q="+issuesObject.getString("ruleKey")+"&open="+issuesObject.getString("ruleKey"),issuesObject.getString("ruleKey"));
-        }
-        pdf.insertIndexAtBeginning();
-        pdf.addCoverPage("SonarQube Report", "Generated for "+ project);
-        pdf.save("reportes.pdf");
-    }
-
-    private static String minsToDaysHoursMins(int minutes) {
-        int days = minutes / (24 * 60);
-        int hours = (minutes % (24 * 60)) / 60;
-        int mins = minutes % 60;
-
-        return String.format("%dd %02dh %02dm", days, hours, mins);
     }
 
     private String getCountAsString(JSONArray jsonArray, int index) {
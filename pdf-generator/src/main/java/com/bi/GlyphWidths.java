@@ -0,0 +1,66 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+/**
+ * Advance widths of one font, looked up once per character and then read from a table
+ * indexed by code point. Measuring a string is a sum over that table, with no encoding
+ * and no allocation; the result is the same as {@link PDFont#getStringWidth}.
+ */
+public class GlyphWidths {
+    private static final int BLOCK_BITS = 8;
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+
+    private final PDFont font;
+    // Blocks of 256 code points, filled on first use; NaN marks a width not looked up yet
+    private final float[][] blocks = new float[(Character.MAX_CODE_POINT >> BLOCK_BITS) + 1][];
+
+    public GlyphWidths(PDFont font) {
+        this.font = font;
+    }
+
+    /** Width of {@code text} in points at {@code fontSize}. */
+    public float width(CharSequence text, float fontSize) throws IOException {
+        return width(text, 0, text.length(), fontSize);
+    }
+
+    /** Width of {@code text[start, end)} in points at {@code fontSize}. */
+    public float width(CharSequence text, int start, int end, float fontSize) throws IOException {
+        return units(text, start, end) / 1000 * fontSize;
+    }
+
+    /** Width of {@code text[start, end)} in glyph space units, 1/1000 of the font size. */
+    public float units(CharSequence text, int start, int end) throws IOException {
+        return extend(0, text, start, end);
+    }
+
+    /**
+     * Adds the width of {@code text[start, end)} to {@code units}, the width of whatever
+     * precedes it. Extending a running width gives exactly the width of the whole string.
+     */
+    public float extend(float units, CharSequence text, int start, int end) throws IOException {
+        for (int i = start; i < end; ) {
+            int codePoint = Character.codePointAt(text, i);
+            units += units(codePoint);
+            i += Character.charCount(codePoint);
+        }
+        return units;
+    }
+
+    /** Advance of one character in glyph space units. */
+    public float units(int codePoint) throws IOException {
+        float[] block = blocks[codePoint >> BLOCK_BITS];
+        if (block == null) {
+            block = new float[BLOCK_SIZE];
+            Arrays.fill(block, Float.NaN);
+            blocks[codePoint >> BLOCK_BITS] = block;
+        }
+        float units = block[codePoint & (BLOCK_SIZE - 1)];
+        if (Float.isNaN(units)) {
+            units = font.getStringWidth(new String(Character.toChars(codePoint)));
+            block[codePoint & (BLOCK_SIZE - 1)] = units;
+        }
+        return units;
+    }
+}
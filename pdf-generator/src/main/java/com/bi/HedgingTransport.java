@@ -0,0 +1,153 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Hedges GETs, which are idempotent: when a request has not answered within the p95
+ * latency observed for its endpoint, the same request is sent again and whichever
+ * response arrives first is used. The other one is closed when it arrives.
+ * <p>
+ * Latencies and the wait before hedging are counted from the moment a request is sent,
+ * once it got a permit of the {@link AdaptiveLimiter}: time spent queueing for a permit
+ * says nothing about the server, and hedging a queued request would only add load while
+ * the limiter is backing off.
+ */
+public class HedgingTransport implements SonarTransport {
+    private static final int MIN_SAMPLES = 20;
+
+    private final HttpTransport delegate;
+    private final ExecutorService executor = Executors.newCachedThreadPool(SonarClient.daemonThreads("sonar-hedge"));
+    private final Map<String, Latencies> latencies = new ConcurrentHashMap<>();
+
+    public HedgingTransport(HttpTransport delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public SonarResponse get(String path, Map<String, String> headers) throws IOException, InterruptedException {
+        Latencies endpoint = latencies.computeIfAbsent(HttpTransport.endpoint(path), key -> new Latencies());
+        long p95 = endpoint.p95();
+        if (p95 < 0) {
+            return delegate.get(path, headers, timing(endpoint, new CompletableFuture<>()));
+        }
+
+        CompletableFuture<Void> sent = new CompletableFuture<>();
+        CompletableFuture<SonarResponse> first = send(endpoint, path, headers, sent);
+        first.whenComplete((response, failure) -> sent.complete(null));
+        try {
+            sent.get();
+            return first.get(p95, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            CompletableFuture<SonarResponse> second = send(endpoint, path, headers, new CompletableFuture<>());
+            CompletableFuture<Object> winner = CompletableFuture.anyOf(first, second);
+            try {
+                SonarResponse response = (SonarResponse) winner.get();
+                closeLater(response == first.getNow(null) ? second : first);
+                return response;
+            } catch (ExecutionException failed) {
+                // One failed first, the other may still succeed
+                CompletableFuture<SonarResponse> other = first.isCompletedExceptionally() ? second : first;
+                return await(other);
+            } catch (InterruptedException interrupted) {
+                closeLater(first);
+                closeLater(second);
+                throw interrupted;
+            }
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            closeLater(first);
+            throw e;
+        }
+    }
+
+    /** @param sent completed when the request leaves, after waiting for its permit */
+    private CompletableFuture<SonarResponse> send(Latencies endpoint, String path, Map<String, String> headers, CompletableFuture<Void> sent) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return delegate.get(path, headers, timing(endpoint, sent));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    private static HttpTransport.Timing timing(Latencies endpoint, CompletableFuture<Void> sent) {
+        return new HttpTransport.Timing() {
+            @Override
+            public void sent() {
+                sent.complete(null);
+            }
+
+            @Override
+            public void answered(long latencyNanos) {
+                endpoint.add(latencyNanos);
+            }
+        };
+    }
+
+    private static SonarResponse await(CompletableFuture<SonarResponse> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static void closeLater(CompletableFuture<SonarResponse> future) {
+        future.thenAccept(response -> {
+            try {
+                response.close();
+            } catch (IOException ignored) {
+                // The response was not wanted anyway
+            }
+        });
+    }
+
+    private static IOException unwrap(ExecutionException e) throws InterruptedException {
+        Throwable cause = e.getCause();
+        if (cause instanceof UncheckedIOException) {
+            return ((UncheckedIOException) cause).getCause();
+        }
+        if (cause instanceof CompletionException && cause.getCause() instanceof InterruptedException) {
+            throw (InterruptedException) cause.getCause();
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        return new IOException(cause);
+    }
+
+    /** The latest latencies of one endpoint, from the time a request was sent to the time its response headers arrived. */
+    private static class Latencies {
+        private final long[] samples = new long[256];
+        private int count;
+
+        synchronized void add(long nanos) {
+            samples[count % samples.length] = nanos;
+            count++;
+        }
+
+        synchronized long p95() {
+            int size = Math.min(count, samples.length);
+            if (size < MIN_SAMPLES) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(size * 0.95) - 1];
+        }
+    }
+}
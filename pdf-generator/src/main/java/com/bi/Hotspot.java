@@ -0,0 +1,17 @@
+import org.json.JSONObject;
+
+/**
+ * The fields of an {@code api/hotspots/search} result the report uses.
+ */
+public record Hotspot(String key, String ruleKey, String vulnerabilityProbability, String message, String component, int line) {
+
+    public static Hotspot from(JSONObject json) {
+        return new Hotspot(
+                json.getString("key"),
+                json.getString("ruleKey"),
+                json.getString("vulnerabilityProbability"),
+                json.getString("message"),
+                json.getString("component"),
+                Issue.line(json));
+    }
+}
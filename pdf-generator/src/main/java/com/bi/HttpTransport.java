@@ -0,0 +1,282 @@
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Network transport on a single long-lived HTTP client shared by every call of a report run.
+ * Connections are pooled and kept alive by the JDK client, and HTTP/2 is negotiated
+ * when the server supports it so concurrent calls share one connection. Requests in
+ * flight are bounded by an {@link AdaptiveLimiter}. Responses are requested gzip or
+ * deflate compressed and decoded while they are read.
+ * <p>
+ * The request timeout bounds the wait for the response headers, and the body is streamed
+ * afterwards: a watchdog aborts a body that receives nothing for as long, and reading it
+ * then fails with a {@link StalledBodyException}.
+ */
+public class HttpTransport implements SonarTransport {
+    private final HttpClient httpClient;
+    private final String apiUrl;
+    private final String authToken;
+    private final AdaptiveLimiter limiter;
+    private final TransferStats transferStats = new TransferStats();
+    private final Duration requestTimeout;
+    private final Set<ReleasingInputStream> open = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(SonarClient.daemonThreads("sonar-watchdog"));
+
+    public HttpTransport(String apiUrl, String authToken, ReportConfig config) {
+        this.apiUrl = apiUrl;
+        this.authToken = authToken;
+        this.limiter = new AdaptiveLimiter(config.getParallelRequests());
+        this.requestTimeout = Duration.ofSeconds(config.getRequestTimeoutSeconds());
+        ExecutorService executor = Executors.newFixedThreadPool(config.getHttpThreads(), SonarClient.daemonThreads("sonar-http"));
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(config.getConnectTimeoutSeconds()))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+        watchdog.scheduleWithFixedDelay(this::abortStalled, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public SonarResponse get(String path, Map<String, String> headers) throws IOException, InterruptedException {
+        return get(path, headers, Timing.NONE);
+    }
+
+    /** Like {@link #get(String, Map)}, telling {@code timing} when the request is sent and how long it took. */
+    public SonarResponse get(String path, Map<String, String> headers, Timing timing) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(apiUrl + path))
+                .timeout(requestTimeout)
+                .header("Authorization", "Bearer " + authToken);
+        headers.forEach(request::header);
+        if (!headers.containsKey("Accept-Encoding")) {
+            request.header("Accept-Encoding", "gzip, deflate");
+        }
+
+        // The permit is held until the body is closed, the connection is busy until then
+        limiter.acquire();
+        long start = System.nanoTime();
+        try {
+            timing.sent();
+            HttpResponse<InputStream> http = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+            long latency = System.nanoTime() - start;
+            timing.answered(latency);
+            boolean throttled = http.statusCode() == 429 || http.statusCode() == 503;
+            SonarResponse response = new SonarResponse(http.statusCode(), http.headers(),
+                    new ReleasingInputStream(http, endpoint(path), throttled, latency));
+            Duration retryAfter = throttled ? response.retryAfter() : null;
+            if (retryAfter != null) {
+                limiter.pause(RetryingTransport.capped(retryAfter));
+            }
+            return response;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            limiter.release();
+            throw e;
+        }
+    }
+
+    public TransferStats getTransferStats() {
+        return transferStats;
+    }
+
+    private void abortStalled() {
+        long now = System.nanoTime();
+        for (ReleasingInputStream body : open) {
+            body.abortIfStalled(now);
+        }
+    }
+
+    static String endpoint(String path) {
+        int query = path.indexOf('?');
+        return query < 0 ? path : path.substring(0, query);
+    }
+
+    private static InputStream decode(InputStream wire, String encoding) throws IOException {
+        try {
+            switch (encoding.trim().toLowerCase(Locale.ROOT)) {
+                case "gzip":
+                case "x-gzip":
+                    return new GZIPInputStream(wire, 8192);
+                case "deflate":
+                    return new InflaterInputStream(wire);
+                default:
+                    return wire;
+            }
+        } catch (IOException e) {
+            wire.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts decoding on the first read rather than when the response arrives: a gzip decoder
+     * reads its header as soon as it is built, and an empty body (304, 204, a bare 502 from a
+     * proxy) has none. An empty body is read as empty whatever its {@code Content-Encoding}.
+     */
+    private static class LazyDecoder extends InputStream {
+        private final InputStream wire;
+        private final String encoding;
+        private InputStream decoded;
+
+        LazyDecoder(InputStream wire, String encoding) {
+            this.wire = wire;
+            this.encoding = encoding;
+        }
+
+        private InputStream decoded() throws IOException {
+            if (decoded == null) {
+                PushbackInputStream peek = new PushbackInputStream(wire, 1);
+                int first = peek.read();
+                if (first < 0) {
+                    decoded = InputStream.nullInputStream();
+                } else {
+                    peek.unread(first);
+                    decoded = decode(peek, encoding);
+                }
+            }
+            return decoded;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return decoded().read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            return decoded().read(buffer, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (decoded != null) {
+                    decoded.close();
+                }
+            } finally {
+                wire.close();
+            }
+        }
+    }
+
+    /** Decodes the body as it is read, counts its bytes and gives the permit back on close. */
+    private class ReleasingInputStream extends FilterInputStream {
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile long lastRead = System.nanoTime();
+        private volatile boolean stalled;
+        private final TransferStats.CountingInputStream wire;
+        private final String endpoint;
+        private final boolean throttled;
+        private final long latency;
+
+        ReleasingInputStream(HttpResponse<InputStream> http, String endpoint, boolean throttled, long latency) {
+            this(new TransferStats.CountingInputStream(http.body()), http.headers().firstValue("Content-Encoding").orElse(""),
+                    endpoint, throttled, latency);
+        }
+
+        private ReleasingInputStream(TransferStats.CountingInputStream wire, String encoding, String endpoint, boolean throttled, long latency) {
+            super(new TransferStats.CountingInputStream(new LazyDecoder(wire, encoding)));
+            this.wire = wire;
+            this.endpoint = endpoint;
+            this.throttled = throttled;
+            this.latency = latency;
+            open.add(this);
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                int b = super.read();
+                lastRead = System.nanoTime();
+                return b;
+            } catch (IOException e) {
+                throw stalled ? new StalledBodyException(endpoint, requestTimeout, e) : e;
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            try {
+                int n = super.read(buffer, offset, length);
+                lastRead = System.nanoTime();
+                return n;
+            } catch (IOException e) {
+                throw stalled ? new StalledBodyException(endpoint, requestTimeout, e) : e;
+            }
+        }
+
+        /** Closing the body from another thread makes the blocked read fail. */
+        void abortIfStalled(long now) {
+            if (!stalled && now - lastRead > requestTimeout.toNanos()) {
+                stalled = true;
+                try {
+                    wire.close();
+                } catch (IOException ignored) {
+                    // The read fails either way
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            open.remove(this);
+            try {
+                super.close();
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    transferStats.add(endpoint, wire.count(), ((TransferStats.CountingInputStream) in).count());
+                    limiter.release(throttled, latency);
+                }
+            }
+        }
+    }
+
+    /**
+     * Timing of one request as seen on the wire: it is sent once it got a permit of the
+     * limiter, and answered when its response headers arrive.
+     */
+    public interface Timing {
+        Timing NONE = new Timing() {
+            @Override
+            public void sent() {
+            }
+
+            @Override
+            public void answered(long latencyNanos) {
+            }
+        };
+
+        void sent();
+
+        void answered(long latencyNanos);
+    }
+
+    /** A response body that received nothing for the request timeout; the request may be sent again. */
+    public static class StalledBodyException extends HttpTimeoutException {
+        private static final long serialVersionUID = 1L;
+
+        StalledBodyException(String endpoint, Duration timeout, IOException cause) {
+            super("No data received for " + timeout.toSeconds() + " s while reading the response of " + endpoint);
+            initCause(cause);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+import org.json.JSONObject;
+
+/**
+ * The fields of an {@code api/issues/search} result the report uses.
+ */
+public record Issue(String key, String rule, String severity, String type, String message, String component, int line) {
+
+    public static Issue from(JSONObject json) {
+        return new Issue(
+                json.getString("key"),
+                json.getString("rule"),
+                json.getString("severity"),
+                json.getString("type"),
+                json.getString("message"),
+                json.getString("component"),
+                line(json));
+    }
+
+    /** The first line of the text range, 0 for file level findings that have none. */
+    static int line(JSONObject json) {
+        JSONObject textRange = json.optJSONObject("textRange");
+        return textRange != null ? textRange.getInt("startLine") : json.optInt("line", 0);
+    }
+}
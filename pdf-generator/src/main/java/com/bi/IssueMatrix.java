@@ -0,0 +1,52 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Issue counts by type and severity, read from the {@code severities} facet and
+ * looked up by facet value. Requests use {@code ps=1} so no issue payload is downloaded.
+ */
+public class IssueMatrix {
+    public static final String[] TYPES = { "BUG", "VULNERABILITY", "CODE_SMELL" };
+    public static final String[] SEVERITIES = { "INFO", "MINOR", "MAJOR", "CRITICAL", "BLOCKER" };
+
+    private final Map<String, Map<String, Integer>> counts = new ConcurrentHashMap<>();
+
+    public static String call(String type) {
+        return "api/issues/search?types=" + type + "&ps=1&facets=severities&componentKeys=";
+    }
+
+    public void put(String type, JSONObject response) {
+        Map<String, Integer> bySeverity = new HashMap<>();
+        JSONArray facets = response.getJSONArray("facets");
+        for (int i = 0; i < facets.length(); i++) {
+            JSONObject facet = facets.getJSONObject(i);
+            if (!"severities".equals(facet.getString("property"))) {
+                continue;
+            }
+            JSONArray values = facet.getJSONArray("values");
+            for (int j = 0; j < values.length(); j++) {
+                JSONObject value = values.getJSONObject(j);
+                bySeverity.put(value.getString("val"), value.getInt("count"));
+            }
+        }
+        counts.put(type, bySeverity);
+    }
+
+    public int count(String type, String severity) {
+        return counts.getOrDefault(type, Map.of()).getOrDefault(severity, 0);
+    }
+
+    /** Table row: the label followed by one count per entry of {@link #SEVERITIES}. */
+    public String[] row(String label, String type) {
+        String[] row = new String[SEVERITIES.length + 1];
+        row[0] = label;
+        for (int i = 0; i < SEVERITIES.length; i++) {
+            row[i + 1] = String.valueOf(count(type, SEVERITIES[i]));
+        }
+        return row;
+    }
+}
@@ -0,0 +1,118 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Greedy line breaking on single spaces. The width of the line being built is carried
+ * along as words are added, and an over-long word is cut in one pass over its characters,
+ * so the cost is linear in the length of the text. Lines and cut points are the same as
+ * measuring every candidate line from scratch, and each line comes with the width it
+ * was measured at.
+ */
+public class LineBreaker {
+
+    /** One line and its width in points. */
+    public record Line(String text, float width) {
+    }
+
+    private LineBreaker() {
+    }
+
+    /**
+     * @param splitWords cut words wider than {@code maxWidth} into pieces that fit, otherwise
+     *        such a word is left on a line of its own
+     */
+    public static List<Line> lines(String text, GlyphWidths widths, float fontSize, float maxWidth, boolean splitWords)
+            throws IOException {
+        List<Line> lines = new ArrayList<>();
+        // Trailing spaces separate no word, as with String.split
+        int end = text.length();
+        while (end > 0 && text.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (end == 0) {
+            return lines;
+        }
+
+        // The line being built is text[lineStart, lineEnd), its words are joined by the spaces between them
+        int lineStart = 0;
+        int lineEnd = 0;
+        float lineUnits = 0;
+        for (int wordStart = 0; wordStart <= end; ) {
+            int wordEnd = text.indexOf(' ', wordStart);
+            if (wordEnd < 0 || wordEnd > end) {
+                wordEnd = end;
+            }
+            boolean lineEmpty = lineEnd == lineStart;
+            float testUnits = lineEmpty
+                    ? widths.units(text, wordStart, wordEnd)
+                    : widths.extend(lineUnits, text, lineEnd, wordEnd);
+
+            if (testUnits / 1000 * fontSize <= maxWidth) {
+                if (lineEmpty) {
+                    lineStart = wordStart;
+                }
+                lineEnd = wordEnd;
+                lineUnits = testUnits;
+            } else {
+                if (!lineEmpty) {
+                    lines.add(line(text, lineStart, lineEnd, lineUnits, fontSize));
+                }
+                if (splitWords) {
+                    lineStart = split(text, wordStart, wordEnd, widths, fontSize, maxWidth, lines);
+                    lineEnd = wordEnd;
+                    lineUnits = widths.units(text, lineStart, lineEnd);
+                } else if (!lineEmpty) {
+                    lineStart = wordStart;
+                    lineEnd = wordEnd;
+                    lineUnits = widths.units(text, wordStart, wordEnd);
+                } else {
+                    lines.add(line(text, wordStart, wordEnd, testUnits, fontSize));
+                    lineStart = wordEnd;
+                    lineEnd = wordEnd;
+                    lineUnits = 0;
+                }
+            }
+            wordStart = wordEnd + 1;
+        }
+
+        if (lineEnd > lineStart) {
+            lines.add(line(text, lineStart, lineEnd, lineUnits, fontSize));
+        }
+        return lines;
+    }
+
+    /**
+     * Adds to {@code lines} the longest pieces of {@code text[start, end)} that fit, for as
+     * long as the rest does not fit, and returns where the rest starts. Each piece is
+     * measured as it grows, one character at a time, so every character is visited once.
+     * A piece holds at least one character even if it is too wide.
+     */
+    private static int split(String text, int start, int end, GlyphWidths widths, float fontSize, float maxWidth, List<Line> lines)
+            throws IOException {
+        int pieceStart = start;
+        float pieceUnits = 0;
+        int i = start;
+        while (i < end) {
+            int codePoint = text.codePointAt(i);
+            float units = pieceUnits + widths.units(codePoint);
+            if (units / 1000 * fontSize > maxWidth) {
+                if (i == pieceStart) {
+                    i += Character.charCount(codePoint);
+                    pieceUnits = units;
+                }
+                lines.add(line(text, pieceStart, i, pieceUnits, fontSize));
+                pieceStart = i;
+                pieceUnits = 0;
+            } else {
+                pieceUnits = units;
+                i += Character.charCount(codePoint);
+            }
+        }
+        return pieceStart;
+    }
+
+    private static Line line(String text, int start, int end, float units, float fontSize) {
+        return new Line(text.substring(start, end), units / 1000 * fontSize);
+    }
+}
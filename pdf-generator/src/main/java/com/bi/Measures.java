@@ -0,0 +1,57 @@
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Measures of the project component, parsed once and looked up by metric key so the
+ * order of the response does not matter.
+ */
+public class Measures {
+    private final Map<Metric, String> values;
+
+    private Measures(Map<Metric, String> values) {
+        this.values = values;
+    }
+
+    public static Measures parse(JSONObject component) {
+        Map<String, Metric> byKey = new HashMap<>();
+        for (Metric metric : Metric.values()) {
+            byKey.put(metric.getKey(), metric);
+        }
+
+        Map<Metric, String> values = new EnumMap<>(Metric.class);
+        JSONArray measuresList = component.getJSONArray("measures");
+        for (int i = 0; i < measuresList.length(); i++) {
+            JSONObject measure = measuresList.getJSONObject(i);
+            Metric metric = byKey.get(measure.getString("metric"));
+            if (metric != null && measure.has("value")) {
+                values.put(metric, measure.getString("value"));
+            }
+        }
+        return new Measures(values);
+    }
+
+    public String value(Metric metric) {
+        return values.getOrDefault(metric, metric.getDefaultValue());
+    }
+
+    public int intValue(Metric metric) {
+        return Integer.parseInt(value(metric));
+    }
+
+    public String formatted(Metric metric) {
+        return metric.format(value(metric));
+    }
+
+    /** One table row with the formatted value of each metric, in the given order. */
+    public String[] row(Metric... metrics) {
+        String[] row = new String[metrics.length];
+        for (int i = 0; i < metrics.length; i++) {
+            row[i] = formatted(metrics[i]);
+        }
+        return row;
+    }
+}
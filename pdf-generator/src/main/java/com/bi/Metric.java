@@ -0,0 +1,104 @@
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Catalog of every measure the report shows. All of them are fetched with a single
+ * {@code api/measures/component} call and looked up by key, see {@link Measures}.
+ */
+public enum Metric {
+    // ANALYSIS STATUS
+    RELIABILITY_RATING("reliability_rating", Format.RATING, "-"),
+    SECURITY_RATING("security_rating", Format.RATING, "-"),
+    SECURITY_REVIEW_RATING("security_review_rating", Format.RATING, "-"),
+    MAINTAINABILITY_RATING("software_quality_maintainability_rating", Format.RATING, "-"),
+
+    // METRICS
+    COVERAGE("coverage", Format.PERCENT, "0.0"),
+    DUPLICATED_LINES_DENSITY("duplicated_lines_density", Format.PERCENT, "0.0"),
+    COMMENT_LINES_DENSITY("comment_lines_density", Format.PERCENT, "0.0"),
+    NCLOC("ncloc", Format.PLAIN, "0"),
+    COMPLEXITY("complexity", Format.PLAIN, "0"),
+    COGNITIVE_COMPLEXITY("cognitive_complexity", Format.PLAIN, "0"),
+
+    // TESTS
+    TESTS("tests", Format.PLAIN, "0"),
+    TEST_SUCCESS_DENSITY("test_success_density", Format.PERCENT, "0"),
+    SKIPPED_TESTS("skipped_tests", Format.PLAIN, "0"),
+    TEST_ERRORS("test_errors", Format.PLAIN, "0"),
+    TEST_FAILURES("test_failures", Format.PLAIN, "0"),
+
+    // DETAILED TECHNICAL DEBTS
+    RELIABILITY_REMEDIATION_EFFORT("reliability_remediation_effort", Format.DURATION, "0"),
+    SECURITY_REMEDIATION_EFFORT("security_remediation_effort", Format.DURATION, "0"),
+    SQALE_INDEX("sqale_index", Format.DURATION, "0"),
+
+    // LINES PER LANGUAGE
+    NCLOC_LANGUAGE_DISTRIBUTION("ncloc_language_distribution", Format.PLAIN, "");
+
+    private final String key;
+    private final Format format;
+    private final String defaultValue;
+
+    Metric(String key, Format format, String defaultValue) {
+        this.key = key;
+        this.format = format;
+        this.defaultValue = defaultValue;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getDefaultValue() {
+        return defaultValue;
+    }
+
+    public String format(String value) {
+        return format.apply(value);
+    }
+
+    /** Comma separated keys of the whole catalog, ready for the {@code metricKeys} parameter. */
+    public static String allKeys() {
+        return Arrays.stream(values()).map(Metric::getKey).collect(Collectors.joining(","));
+    }
+
+    public static String minsToDaysHoursMins(int minutes) {
+        int days = minutes / (24 * 60);
+        int hours = (minutes % (24 * 60)) / 60;
+        int mins = minutes % 60;
+
+        return String.format("%dd %02dh %02dm", days, hours, mins);
+    }
+
+    enum Format {
+        PLAIN {
+            String apply(String value) {
+                return value;
+            }
+        },
+        PERCENT {
+            String apply(String value) {
+                return value + "%";
+            }
+        },
+        RATING {
+            String apply(String value) {
+                switch (value) {
+                    case "1.0": return "A";
+                    case "2.0": return "B";
+                    case "3.0": return "C";
+                    case "4.0": return "D";
+                    case "5.0": return "E";
+                    default: return value;
+                }
+            }
+        },
+        DURATION {
+            String apply(String value) {
+                return minsToDaysHoursMins(Integer.parseInt(value));
+            }
+        };
+
+        abstract String apply(String value);
+    }
+}
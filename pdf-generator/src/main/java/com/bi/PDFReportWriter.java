@@ -1,30 +1,45 @@
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
+import javax.imageio.ImageIO;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessStreamCache;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.font.PDFont;
 import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.apache.pdfbox.pdmodel.interactive.action.PDActionGoTo;
 import org.apache.pdfbox.pdmodel.interactive.action.PDActionURI;
 import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
 import org.apache.pdfbox.pdmodel.interactive.annotation.PDBorderStyleDictionary;
 import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageXYZDestination;
+import org.apache.pdfbox.util.Matrix;
 
 
 
 
-public class PDFReportWriter {
+public class PDFReportWriter implements Closeable {
     private final PDDocument document;
     private PDPageContentStream contentStream;
     private PDFont font;
@@ -41,44 +56,158 @@ public class PDFReportWriter {
     private final float tittle1Size = 20;
     private final float tittle2Size = 18;
     private final float tittle3Size = 14;
+    private final float indexTop = PDRectangle.A4.getHeight() - margin - 60;
+    private final float indexLineHeight = 2.0f * bodySize;
+    private static final float LOGO_WIDTH = 80;
+    private static final float LOGO_HEIGHT = 90f;
+    // Pixels per displayed point kept when the logo is scaled down, about 144 dpi
+    private static final float LOGO_RESOLUTION = 2;
     private PDFont previousFont = tittle1Font;
 
     private PDPage currentPage;
     private float currentY;
 
+    private final byte[] bodyFontData;
+    private final byte[] titleFontData;
+    private final PDImageXObject logo;
+    private final Map<PDFont, GlyphWidths> glyphWidths = new IdentityHashMap<>();
+
     private PDFont currentFontType;
 
-    private final List<PDPage> indexPages;
+    // Pages are put in the document only on save, in their final order: cover, index, content
+    private final List<PDPage> contentPages = new ArrayList<>();
+    private PDPage coverPage;
+    private boolean withIndex;
+    private final List<PDDocument> appended = new ArrayList<>();
 
     private final List<Bookmark> bookmarks = new ArrayList<>();
     private static class Bookmark {
         String title;
         PDPage page;
+        int contentPage; // index among the content pages
         float yPosition;
         int level; // 1 = tittle1, 2 = tittle2, 3 = tittle3
 
-        Bookmark(String title, PDPage page, float yPosition, int level) {
+        Bookmark(String title, PDPage page, int contentPage, float yPosition, int level) {
             this.title = title;
             this.page = page;
+            this.contentPage = contentPage;
             this.yPosition = yPosition;
             this.level = level;
         }
     }
 
-    public PDFReportWriter() throws IOException {
-        document = new PDDocument();
-        this.indexPages = new ArrayList<>();
-        InputStream imageStream = getClass().getClassLoader().getResourceAsStream("fonts/CrimsonPro-Regular.ttf");
-        bodyFont = PDType0Font.load(document, imageStream);
-        imageStream = getClass().getClassLoader().getResourceAsStream("fonts/CrimsonPro-Bold.ttf");
-        tittle1Font = PDType0Font.load(document, imageStream);
-        tittle2Font = tittle1Font;
-        tittle3Font = tittle1Font;
-        font = bodyFont;
-        fontSize = bodySize;
-        leading = 1.5f * fontSize;
-        currentFontType = bodyFont;
-        addNewPage();
+    public PDFReportWriter(ReportConfig config) throws IOException {
+        this(config, config.getPdfMemoryBytes(), null);
+    }
+
+    /**
+     * @param memoryBytes main memory budget of this writer's document
+     * @param shared writer whose font files and logo are reused instead of read again, or {@code null}
+     */
+    private PDFReportWriter(ReportConfig config, long memoryBytes, PDFReportWriter shared) throws IOException {
+        document = new PDDocument(streamCache(config, memoryBytes));
+        try {
+            bodyFontData = shared != null ? shared.bodyFontData : readResource("fonts/CrimsonPro-Regular.ttf");
+            titleFontData = shared != null ? shared.titleFontData : readResource("fonts/CrimsonPro-Bold.ttf");
+            bodyFont = PDType0Font.load(document, new ByteArrayInputStream(bodyFontData));
+            tittle1Font = PDType0Font.load(document, new ByteArrayInputStream(titleFontData));
+            tittle2Font = tittle1Font;
+            tittle3Font = tittle1Font;
+            logo = shared != null ? shared.logo : loadLogo();
+            font = bodyFont;
+            fontSize = bodySize;
+            leading = 1.5f * fontSize;
+            currentFontType = bodyFont;
+            addNewPage();
+        } catch (IOException | RuntimeException e) {
+            document.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writers for {@code count} sections of one report, to be written at the same time, one
+     * thread each, and then appended to the first one. Each section starts on a new page.
+     * Each has its own document and fonts, since fonts track the glyphs they use, but the
+     * font files are read once and all the pages share one logo. The memory budget is
+     * split between them.
+     */
+    public static List<PDFReportWriter> sections(ReportConfig config, int count) throws IOException {
+        long memoryBytes = config.getPdfMemoryBytes() / count;
+        List<PDFReportWriter> sections = new ArrayList<>(count);
+        try {
+            PDFReportWriter first = new PDFReportWriter(config, memoryBytes, null);
+            sections.add(first);
+            for (int i = 1; i < count; i++) {
+                sections.add(new PDFReportWriter(config, memoryBytes, first));
+            }
+        } catch (IOException | RuntimeException e) {
+            for (PDFReportWriter section : sections) {
+                try {
+                    section.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+        return sections;
+    }
+
+    /**
+     * Moves the pages and bookmarks of {@code section} after those of this writer, for
+     * {@link #save} to number, index and footer along with them. Nothing else but the index
+     * and the cover may be written to this writer afterwards.
+     */
+    public void append(PDFReportWriter section) throws IOException {
+        endContent();
+        section.endContent();
+        // This document's save only subsets its own fonts, the section's are finished here
+        section.bodyFont.subset();
+        section.tittle1Font.subset();
+
+        int offset = contentPages.size();
+        for (Bookmark bm : section.bookmarks) {
+            bookmarks.add(new Bookmark(bm.title, bm.page, offset + bm.contentPage, bm.yPosition, bm.level));
+        }
+        contentPages.addAll(section.contentPages);
+        // Its pages still read their content from its document until this one is saved
+        appended.add(section.document);
+        appended.addAll(section.appended);
+    }
+
+    private void endContent() throws IOException {
+        if (contentStream != null) {
+            try {
+                contentStream.endText();
+            } catch (IllegalStateException ignored) {}
+            contentStream.close();
+            contentStream = null;
+        }
+    }
+
+    private byte[] readResource(String name) throws IOException {
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("Missing resource " + name);
+            }
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Content streams are kept in memory up to the configured budget and in a scratch file
+     * beyond it, so the heap does not grow with the length of the report.
+     */
+    private static RandomAccessStreamCache.StreamCacheCreateFunction streamCache(ReportConfig config, long memoryBytes) throws IOException {
+        MemoryUsageSetting memory = memoryBytes > 0
+                ? MemoryUsageSetting.setupMixed(memoryBytes)
+                : MemoryUsageSetting.setupTempFileOnly();
+        if (config.getPdfTempDir() != null) {
+            memory.setTempDir(Files.createDirectories(Path.of(config.getPdfTempDir())).toFile());
+        }
+        return memory.streamCache;
     }
 
     public void addLine(String text) throws IOException {
@@ -98,20 +227,21 @@ public class PDFReportWriter {
         float maxWidth = PDRectangle.A4.getWidth() - 2 * margin;
         List<String> lines = divideTextInLines(text, font, fontSize, maxWidth);
 
-        for (String line : lines) {
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
             contentStream.showText(line);
 
             if ((currentFontType == tittle1Font || currentFontType == tittle2Font || currentFontType == tittle3Font)
-                    && lines.indexOf(line) == 0) {
+                    && i == 0) {
                 int level = (currentFontType == tittle1Font) ? 1 :
                             (currentFontType == tittle2Font) ? 2 : 3;
 
                 addBookmark(line, level);
             }
 
-            if (currentFontType == tittle1Font && lines.indexOf(line) == 0) {
+            if (currentFontType == tittle1Font && i == 0) {
                 contentStream.endText();
-                float textWidth = font.getStringWidth(line) / 1000 * fontSize;
+                float textWidth = stringWidth(font, line, fontSize);
                 float underlineY = yPosition - 2f;
                 contentStream.setLineWidth(1f);
                 contentStream.moveTo(margin, underlineY);
@@ -138,44 +268,27 @@ public class PDFReportWriter {
     }
     
     private List<String> divideTextInLines(String text, PDFont font, float size, float maxWidth) throws IOException {
-        List<String> lines = new ArrayList<>();
-        String[] words = text.split(" ");
-        StringBuilder currentLine = new StringBuilder();
-
-        for (String word : words) {
-            String test = currentLine.length() == 0 ? word : currentLine + " " + word;
-            float width = font.getStringWidth(test) / 1000 * size;
-
-            if (width > maxWidth) {
-                if (currentLine.length() > 0) {
-                    lines.add(currentLine.toString());
-                    currentLine = new StringBuilder(word);
-                } else {
-                    lines.add(word);
-                    currentLine = new StringBuilder();
-                }
-            } else {
-                currentLine = new StringBuilder(test);
-            }
-        }
+        return LineBreaker.lines(text, widths(font), size, maxWidth, false).stream().map(LineBreaker.Line::text).toList();
+    }
 
-        if (currentLine.length() > 0) {
-            lines.add(currentLine.toString());
-        }
+    private GlyphWidths widths(PDFont font) {
+        return glyphWidths.computeIfAbsent(font, GlyphWidths::new);
+    }
 
-        return lines;
+    private float stringWidth(PDFont font, String text, float size) throws IOException {
+        return widths(font).width(text, size);
     }
 
     private void addNewPage() throws IOException {
         PDPage page = new PDPage(PDRectangle.A4);
-        document.addPage(page);
+        contentPages.add(page);
         yPosition = PDRectangle.A4.getHeight() - margin - 20;
         contentStream = new PDPageContentStream(document, page);
+        drawHeader(contentStream);
         contentStream.setFont(font, fontSize);
         contentStream.setLeading(leading);
         currentPage = page;
         currentY = yPosition;
-        drawHeader(page);
     }
 
     public static String getCurrentGMTTimeFormatted() {
@@ -189,8 +302,10 @@ public class PDFReportWriter {
         return nowGMT.format(formatter);
     }
 
-    private void drawHeader(PDPage page) throws IOException {
-        try (PDPageContentStream headerStream = new PDPageContentStream(document, page, PDPageContentStream.AppendMode.APPEND, true, true)) {
+    /** Draws the header into the page's own content stream, leaving its graphics state as it was. */
+    private void drawHeader(PDPageContentStream headerStream) throws IOException {
+        headerStream.saveGraphicsState();
+        try {
             float pageWidth = PDRectangle.A4.getWidth();
             float headerHeight = 40f;
             float yTop = PDRectangle.A4.getHeight();
@@ -217,21 +332,50 @@ public class PDFReportWriter {
             headerStream.endText();
 
             String centerText = "CONFIDENTIAL";
-            float centerWidth = bodyFont.getStringWidth(centerText) / 1000 * 10;
+            float centerWidth = stringWidth(bodyFont, centerText, 10);
             headerStream.beginText();
             headerStream.newLineAtOffset((pageWidth - centerWidth) / 2, yTop - 20);
             headerStream.showText(centerText);
             headerStream.endText();
 
-            try (InputStream imageStream = getClass().getClassLoader().getResourceAsStream("sonarqube-pngrepo-com.png")) {
-                if (imageStream != null) {
-                    PDImageXObject logo = PDImageXObject.createFromByteArray(document, imageStream.readAllBytes(), "logo");
-                    float imageWidth = 80;
-                    float imageHeight = 90f;
-                    headerStream.drawImage(logo, pageWidth - margin - imageWidth, yTop - 63, imageWidth, imageHeight);
-                }
+            if (logo != null) {
+                headerStream.drawImage(logo, pageWidth - margin - LOGO_WIDTH, yTop - 63, LOGO_WIDTH, LOGO_HEIGHT);
             }
+        } finally {
+            headerStream.restoreGraphicsState();
+        }
+    }
+
+    /**
+     * Decodes the header logo once for the whole document, every page refers to the same
+     * image. It is scaled down first, the source is far larger than it is ever shown.
+     */
+    private PDImageXObject loadLogo() throws IOException {
+        BufferedImage source;
+        try (InputStream imageStream = getClass().getClassLoader().getResourceAsStream("sonarqube-pngrepo-com.png")) {
+            if (imageStream == null) {
+                return null;
+            }
+            source = ImageIO.read(imageStream);
+        }
+        if (source == null) {
+            return null;
+        }
+
+        float scale = Math.min(1f, Math.max(LOGO_WIDTH * LOGO_RESOLUTION / source.getWidth(),
+                LOGO_HEIGHT * LOGO_RESOLUTION / source.getHeight()));
+        int width = Math.max(1, Math.round(source.getWidth() * scale));
+        int height = Math.max(1, Math.round(source.getHeight() * scale));
+        BufferedImage scaled = source;
+        if (width != source.getWidth() || height != source.getHeight()) {
+            scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D graphics = scaled.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+            graphics.dispose();
         }
+        return LosslessFactory.createFromImage(document, scaled);
     }
 
     public void drawTable(float tableWidth, String[] headers, List<String[]> rows) throws IOException {
@@ -243,41 +387,26 @@ public class PDFReportWriter {
 
         setFont(bodyFont, bodySize);
 
-        int cols = headers.length;
-        float colWidth = tableWidth / cols;
+        float pageTop = PDRectangle.A4.getHeight() - margin - 20;
+        TableLayout layout = TableLayout.measure(headers, rows, tableWidth, widths(tittle3Font), widths(font), fontSize, leading,
+                yPosition, pageTop, margin);
         float y = yPosition;
 
-        int maxHeaderLines = 1;
-        for (String header : headers) {
-            List<String> lines = wrapText(header, colWidth - 10);
-            maxHeaderLines = Math.max(maxHeaderLines, lines.size());
-        }
-        float headerHeight = maxHeaderLines * leading;
-
-        drawTableSection(headers, null, y, headerHeight, colWidth, tableWidth, true);
-        y -= headerHeight;
+        drawTableRow(layout, layout.getHeader(), y, true);
+        y -= layout.getHeader().height();
 
-        for (String[] row : rows) {
-            int maxLines = 1;
-            for (int i = 0; i < row.length; i++) {
-                List<String> lines = wrapText(row[i], colWidth - 10);
-                maxLines = Math.max(maxLines, lines.size());
-            }
-
-            float leading = 1.5f * fontSize;
-            float rowHeight = maxLines * leading;
-
-            if (y - rowHeight < margin) {
+        for (TableLayout.Row row : layout.getRows()) {
+            if (row.newPage()) {
                 contentStream.close();
                 addNewPage();
                 y = yPosition;
 
-                drawTableSection(headers, null, y, 20, colWidth, tableWidth, true);
-                y -= 20;
+                drawTableRow(layout, layout.getHeader(), y, true);
+                y -= layout.getHeader().height();
             }
 
-            drawTableSection(null, row, y, rowHeight, colWidth, tableWidth, false);
-            y -= rowHeight;
+            drawTableRow(layout, row, y, false);
+            y -= row.height();
         }
 
         yPosition = y - 10;
@@ -287,9 +416,10 @@ public class PDFReportWriter {
         } catch (IllegalStateException ignored) {}
     }
 
-    private void drawTableSection(String[] header, String[] row, float y, float rowHeight, float colWidth, float tableWidth, boolean isHeader) throws IOException {
-        int cols = header != null ? header.length : row.length;
+    private void drawTableRow(TableLayout layout, TableLayout.Row row, float y, boolean isHeader) throws IOException {
         float x = margin;
+        float rowHeight = row.height();
+        float tableWidth = layout.getWidth();
 
         if (isHeader) {
             contentStream.setNonStrokingColor(0.6f, 0.8f, 0.95f);
@@ -298,8 +428,11 @@ public class PDFReportWriter {
             contentStream.setNonStrokingColor(0);
         }
 
-        for (int i = 0; i <= cols; i++) {
-            float xLine = x + i * colWidth;
+        float xLine = x;
+        contentStream.moveTo(xLine, y);
+        contentStream.lineTo(xLine, y - rowHeight);
+        for (int i = 0; i < layout.getColumnCount(); i++) {
+            xLine += layout.getColumnWidth(i);
             contentStream.moveTo(xLine, y);
             contentStream.lineTo(xLine, y - rowHeight);
         }
@@ -310,54 +443,60 @@ public class PDFReportWriter {
         contentStream.lineTo(x + tableWidth, y - rowHeight);
         contentStream.stroke();
 
-        float maxTextWidth = colWidth - 10;
-        for (int i = 0; i < cols; i++) {
-            String text = isHeader ? header[i] : (i < row.length ? row[i] : "");
-            List<String> lines = wrapText(text, maxTextWidth);
-            float totalTextHeight = lines.size() * leading;
-            float startX = x + i * colWidth;
-            float startY = y - ((rowHeight - totalTextHeight) / 2) - fontSize;
+        // One text object for the whole row, every line placed absolutely
+        contentStream.beginText();
+        contentStream.setFont(isHeader ? tittle3Font : font, layout.getFontSize());
+        float startX = x;
+        for (int i = 0; i < layout.getColumnCount(); i++) {
+            float colWidth = layout.getColumnWidth(i);
+            List<LineBreaker.Line> lines = row.cells().get(i);
+            float totalTextHeight = lines.size() * layout.getLeading();
+            float startY = y - ((rowHeight - totalTextHeight) / 2) - layout.getFontSize();
 
             for (int j = 0; j < lines.size(); j++) {
-                String line = lines.get(j);
-                float textWidth = font.getStringWidth(line) / 1000 * fontSize;
-                float textX = startX + (colWidth - textWidth) / 2;
-                float textY = startY - j * leading;
-
-                contentStream.beginText();
-                contentStream.setFont(isHeader ? tittle3Font : font, fontSize);
-                contentStream.newLineAtOffset(textX, textY);
-                contentStream.showText(line);
-                contentStream.endText();
+                LineBreaker.Line line = lines.get(j);
+                float textX = startX + (colWidth - line.width()) / 2;
+                float textY = startY - j * layout.getLeading();
+                contentStream.setTextMatrix(Matrix.getTranslateInstance(textX, textY));
+                contentStream.showText(line.text());
             }
+            startX += colWidth;
         }
+        contentStream.endText();
     }
 
-    public void insertIndexAtBeginning() throws IOException {
-        PDPage indexPage = new PDPage(PDRectangle.A4);
-
-       
-        List<PDPage> existingPages = new ArrayList<>();
-        for (PDPage page : document.getPages()) {
-            existingPages.add(page);
-        }
+    /**
+     * Puts an index of the bookmarks at the beginning, after the cover. It is drawn on
+     * {@link #save}, once every page number is known.
+     */
+    public void insertIndexAtBeginning() {
+        withIndex = true;
+    }
 
-        
-        int total = document.getNumberOfPages();
-        for (int i = total - 1; i >= 0; i--) {
-            document.removePage(i);
+    /** Pages {@link #drawIndex} takes, one entry after the other as it lays them out. */
+    private int countIndexPages() {
+        int pages = 1;
+        float y = indexTop - indexLineHeight * 2;
+        for (int i = 0; i < bookmarks.size(); i++) {
+            if (y <= margin + indexLineHeight) {
+                pages++;
+                y = indexTop;
+            }
+            y -= indexLineHeight;
         }
+        return pages;
+    }
 
-        
-        document.addPage(indexPage);
+    /** @param firstContentPage number of the first content page */
+    private List<PDPage> drawIndex(int firstContentPage) throws IOException {
+        List<PDPage> indexPages = new ArrayList<>();
+        PDPage indexPage = new PDPage(PDRectangle.A4);
         indexPages.add(indexPage);
-        drawHeader(indexPage);
-
-        PDPageContentStream indexStream = new PDPageContentStream(document, indexPage,
-                PDPageContentStream.AppendMode.APPEND, true, true);
+        PDPageContentStream indexStream = new PDPageContentStream(document, indexPage);
+        drawHeader(indexStream);
 
-        float y = PDRectangle.A4.getHeight() - margin - 60;
-        float lineHeight = 2.0f * bodySize;
+        float y = indexTop;
+        float lineHeight = indexLineHeight;
 
         
         indexStream.setFont(tittle1Font, tittle1Size);
@@ -368,6 +507,15 @@ public class PDFReportWriter {
         y -= lineHeight * 2;
 
         for (Bookmark bm : bookmarks) {
+            if (y <= margin + lineHeight) {
+                indexStream.close();
+                indexPage = new PDPage(PDRectangle.A4);
+                indexPages.add(indexPage);
+                indexStream = new PDPageContentStream(document, indexPage);
+                drawHeader(indexStream);
+                y = indexTop;
+            }
+
             String title = bm.title;
 
             float indent = margin + (bm.level - 1) * 20;
@@ -399,11 +547,11 @@ public class PDFReportWriter {
 
             indexStream.setFont(thisFont, thisFontSize);
 
-            int pageNum = existingPages.indexOf(bm.page) + 2; 
+            int pageNum = firstContentPage + bm.contentPage;
             String pageStr = String.valueOf(pageNum);
 
-            float pageStrWidth = thisFont.getStringWidth(pageStr) / 1000 * thisFontSize;
-            float titleWidth = thisFont.getStringWidth(title) / 1000 * thisFontSize;
+            float pageStrWidth = stringWidth(thisFont, pageStr, thisFontSize);
+            float titleWidth = stringWidth(thisFont, title, thisFontSize);
 
             
             indexStream.beginText();
@@ -443,94 +591,44 @@ public class PDFReportWriter {
             indexPage.getAnnotations().add(link);
 
             y -= lineHeight;
-
-            if (y <= margin + lineHeight) {
-                indexStream.close();
-                indexPage = new PDPage(PDRectangle.A4);
-                document.addPage(indexPage);
-                indexPages.add(indexPage);
-                drawHeader(indexPage);
-                indexStream = new PDPageContentStream(document, indexPage,
-                        PDPageContentStream.AppendMode.APPEND, true, true);
-                y = PDRectangle.A4.getHeight() - margin - 60;
-            }
         }
 
         indexStream.close();
-
-        
-        for (PDPage page : existingPages) {
-            document.addPage(page);
-        }
+        return indexPages;
     }
 
-    private List<String> wrapText(String text, float maxWidth) throws IOException {
-        List<String> lines = new ArrayList<>();
-        String[] words = text.split(" ");
-        StringBuilder currentLine = new StringBuilder();
-
-        for (String word : words) {
-            String testLine = currentLine.length() == 0 ? word : currentLine + " " + word;
-            float width = font.getStringWidth(testLine) / 1000 * fontSize;
-
-            if (width > maxWidth) {
-                if (currentLine.length() > 0) {
-                    lines.add(currentLine.toString());
-                }
-
-                
-                while (font.getStringWidth(word) / 1000 * fontSize > maxWidth) {
-                    int cutIndex = 1;
-                    while (cutIndex < word.length() &&
-                            font.getStringWidth(word.substring(0, cutIndex)) / 1000 * fontSize <= maxWidth) {
-                        cutIndex++;
-                    }
-                    cutIndex--;
-                    lines.add(word.substring(0, cutIndex));
-                    word = word.substring(cutIndex);
-                }
+    public void save(String fileName) throws IOException {
+        endContent();
 
-                currentLine = new StringBuilder(word);
-            } else {
-                currentLine = new StringBuilder(testLine);
-            }
+        List<PDPage> pages = new ArrayList<>();
+        if (coverPage != null) {
+            pages.add(coverPage);
         }
-
-        if (currentLine.length() > 0) {
-            lines.add(currentLine.toString());
+        if (withIndex) {
+            pages.addAll(drawIndex(pages.size() + countIndexPages() + 1));
         }
+        pages.addAll(contentPages);
 
-        return lines;
-    }
-
-    private void repositionIndexPages() {
-        int insertAfter = 0; 
-
-        for (int i = indexPages.size() - 1; i >= 0; i--) {
-            PDPage page = indexPages.get(i);
-            document.getPages().remove(page);
-            document.getPages().insertAfter(page, document.getPage(insertAfter));
-        }
-    }
-
-    public void save(String fileName) throws IOException {
-        if (contentStream != null) {
-            try {
-                contentStream.endText();
-            } catch (IllegalStateException ignored) {}
-            contentStream.close();
-            contentStream = null;
+        int totalPages = pages.size();
+        for (int i = 0; i < totalPages; i++) {
+            drawFooter(pages.get(i), i + 1, totalPages);
+            document.addPage(pages.get(i));
         }
 
-        repositionIndexPages(); 
-
-        int totalPages = document.getNumberOfPages();
-        for (int i = 0; i < totalPages; i++) {
-            drawFooter(document.getPage(i), i + 1, totalPages);
+        try {
+            document.save(fileName);
+        } finally {
+            close();
         }
+    }
 
-        document.save(fileName);
+    /** Releases the document, and those of the appended sections, without saving. */
+    @Override
+    public void close() throws IOException {
         document.close();
+        for (PDDocument section : appended) {
+            section.close();
+        }
     }
 
     public void bodyFont() throws IOException {
@@ -666,7 +764,7 @@ public class PDFReportWriter {
             footerStream.setFont(bodyFont, 10);
             footerStream.setNonStrokingColor(0.2f);
 
-            float textWidth = bodyFont.getStringWidth(text) / 1000 * 10;
+            float textWidth = stringWidth(bodyFont, text, 10);
             float x = (pageWidth - textWidth) / 2;
 
             footerStream.beginText();
@@ -686,7 +784,7 @@ public class PDFReportWriter {
 
         float pageWidth = PDRectangle.A4.getWidth();
         String formattedLabel = "• " + label + ": ";
-        float labelWidth = tittle3Font.getStringWidth(formattedLabel) / 1000 * bodySize;
+        float labelWidth = stringWidth(tittle3Font, formattedLabel, bodySize);
 
         float maxFirstLineWidth = pageWidth - margin * 2 - labelWidth - 5;
         float indentX = margin + labelWidth + 5;
@@ -761,8 +859,8 @@ public class PDFReportWriter {
         }
 
         float pageWidth = PDRectangle.A4.getWidth();
-        float labelWidth = tittle3Font.getStringWidth("• " + label + ": ") / 1000 * bodySize;
-        float linkTextWidth = bodyFont.getStringWidth(visibleText) / 1000 * bodySize;
+        float labelWidth = stringWidth(tittle3Font, "• " + label + ": ", bodySize);
+        float linkTextWidth = stringWidth(bodyFont, visibleText, bodySize);
 
         contentStream.beginText();
         contentStream.setFont(tittle3Font, bodySize);
@@ -791,7 +889,7 @@ public class PDFReportWriter {
         action.setURI(url);
         link.setAction(action);
 
-        document.getPage(document.getNumberOfPages() - 1).getAnnotations().add(link);
+        currentPage.getAnnotations().add(link);
 
         yPosition -= leading;
         margin = originalMargin;
@@ -831,7 +929,7 @@ public class PDFReportWriter {
         if (lines.length == 0) return;
 
         String labelText = "• " + label + ": ";
-        float labelWidth = tittle3Font.getStringWidth(labelText) / 1000 * fontSize;
+        float labelWidth = stringWidth(tittle3Font, labelText, fontSize);
 
         if (yPosition <= margin + leading) {
             contentStream.close();
@@ -907,18 +1005,18 @@ public class PDFReportWriter {
 
             stream.setFont(tittle1Font, 28);
             stream.beginText();
-            stream.newLineAtOffset((width - tittle1Font.getStringWidth(title) / 1000 * 28) / 2, height - 200);
+            stream.newLineAtOffset((width - stringWidth(tittle1Font, title, 28)) / 2, height - 200);
             stream.showText(title);
             stream.endText();
 
             stream.setFont(bodyFont, 16);
             stream.beginText();
-            stream.newLineAtOffset((width - bodyFont.getStringWidth(subtitle) / 1000 * 16) / 2, height - 240);
+            stream.newLineAtOffset((width - stringWidth(bodyFont, subtitle, 16)) / 2, height - 240);
             stream.showText(subtitle);
             stream.endText();
         }
 
-        document.getPages().insertBefore(cover, document.getPage(0));
+        coverPage = cover;
     }
 
     private List<NumberedBookmark> buildHierarchicalBookmarks() {
@@ -964,6 +1062,6 @@ public class PDFReportWriter {
     }
 
     public void addBookmark(String title, int level) {
-        bookmarks.add(new Bookmark(title, currentPage, currentY, level));
+        bookmarks.add(new Bookmark(title, currentPage, contentPages.size() - 1, currentY, level));
     }
 }
\ No newline at end of file
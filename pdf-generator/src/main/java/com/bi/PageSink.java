@@ -0,0 +1,10 @@
+import java.util.List;
+
+/**
+ * Receives the pages of a search as they arrive, from several fetch threads at once and
+ * in no particular order. The page may be dropped once consumed.
+ */
+@FunctionalInterface
+public interface PageSink<T> {
+    void accept(List<T> page);
+}
@@ -0,0 +1,92 @@
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import org.json.JSONObject;
+
+/**
+ * Reads a paginated search endpoint whose {@code paging.total} is known. The pages are
+ * requested in parallel through a sliding window, and each one is handed to a
+ * {@link PageSink} by the thread that read it, so no page is held.
+ */
+public class Paginator {
+    public static final int PAGE_SIZE = 500;
+    /** Search window of issues/search and hotspots/search: {@code p * ps} may not exceed it. */
+    public static final int MAX_RESULTS = 10_000;
+
+    private final SonarClient client;
+    private final ExecutorService executor;
+    private final int window;
+
+    public Paginator(SonarClient client, ExecutorService executor, int window) {
+        this.client = client;
+        this.executor = executor;
+        this.window = window;
+    }
+
+    /**
+     * Requests every page of a search whose {@code total} is already known. SonarQube refuses
+     * to page past {@link #MAX_RESULTS}, so at most that many results are read.
+     *
+     * @param call search call with a {@code %d} placeholder for the page index, ending in the project parameter
+     * @param arrayKey name of the array holding the page items ("issues", "hotspots")
+     * @param mapper converts each streamed item into its compact record
+     * @param sink receives every page
+     */
+    public <T> void fetchPages(String call, String project, String arrayKey, Function<JSONObject, T> mapper, int total, PageSink<T> sink)
+            throws IOException, InterruptedException {
+        int pages = (Math.min(total, MAX_RESULTS) + PAGE_SIZE - 1) / PAGE_SIZE;
+
+        Deque<Future<Void>> pending = new ArrayDeque<>();
+        int nextPage = 1;
+        try {
+            while (nextPage <= pages && pending.size() < window) {
+                pending.add(submit(call, project, arrayKey, mapper, sink, nextPage++));
+            }
+            while (!pending.isEmpty()) {
+                await(pending.poll());
+                if (nextPage <= pages) {
+                    pending.add(submit(call, project, arrayKey, mapper, sink, nextPage++));
+                }
+            }
+        } finally {
+            for (Future<Void> future : pending) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private <T> Future<Void> submit(String call, String project, String arrayKey, Function<JSONObject, T> mapper, PageSink<T> sink,
+            int pageIndex) {
+        return executor.submit(() -> {
+            List<T> page = new ArrayList<>(PAGE_SIZE);
+            client.fetchSearchPage(String.format(call, pageIndex), project, arrayKey, mapper, page);
+            sink.accept(page);
+            return null;
+        });
+    }
+
+    static <T> T await(Future<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
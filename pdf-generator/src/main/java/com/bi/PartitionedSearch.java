@@ -0,0 +1,217 @@
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Reads a whole search result, even past the {@link Paginator#MAX_RESULTS} window
+ * SonarQube imposes on issues/search and hotspots/search. A query whose total is too
+ * large is split along the next dimension (severity, type, directory, creation date...)
+ * until every partition fits the window. Partitions are fetched in parallel, a few at a
+ * time, and every page goes to the {@link PageSink} as soon as it is read, so memory does
+ * not grow with the number of results.
+ */
+public class PartitionedSearch<T> {
+    private static final DateTimeFormatter SONAR_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ").withZone(ZoneOffset.UTC);
+    private static final Instant LATEST_CREATION = Instant.parse("2100-01-01T00:00:00Z");
+    private static final int PARTITIONS_AHEAD = 4;
+
+    private static final String[] SECURITY_CATEGORIES = {
+        "buffer-overflow", "sql-injection", "rce", "object-injection", "command-injection", "path-traversal-injection",
+        "ldap-injection", "xpath-injection", "log-injection", "xxe", "xss", "dos", "ssrf", "csrf",
+        "http-response-splitting", "open-redirect", "weak-cryptography", "auth", "insecure-conf", "file-manipulation",
+        "encrypt-data", "traceability", "permission", "others"
+    };
+
+    private final SonarClient client;
+    private final Paginator paginator;
+    private final ExecutorService executor;
+    private final String search;
+    private final String projectParam;
+    private final String arrayKey;
+    private final Function<JSONObject, T> mapper;
+    private final List<Dimension> dimensions;
+
+    private PartitionedSearch(SonarClient client, Paginator paginator, ExecutorService executor, String search, String projectParam,
+            String arrayKey, Function<JSONObject, T> mapper, List<Dimension> dimensions) {
+        this.client = client;
+        this.paginator = paginator;
+        this.executor = executor;
+        this.search = search;
+        this.projectParam = projectParam;
+        this.arrayKey = arrayKey;
+        this.mapper = mapper;
+        this.dimensions = dimensions;
+    }
+
+    public static PartitionedSearch<Issue> issues(SonarClient client, Paginator paginator, ExecutorService executor) {
+        PartitionedSearch<Issue> search = new PartitionedSearch<>(client, paginator, executor,
+                "api/issues/search?issueStatuses=OPEN", "componentKeys", "issues", Issue::from, new ArrayList<>());
+        search.dimensions.add(search.values("severities", IssueMatrix.SEVERITIES));
+        search.dimensions.add(search.values("types", IssueMatrix.TYPES));
+        search.dimensions.add(search.directories());
+        search.dimensions.add(search.creationDate());
+        return search;
+    }
+
+    public static PartitionedSearch<Hotspot> hotspots(SonarClient client, Paginator paginator, ExecutorService executor) {
+        PartitionedSearch<Hotspot> search = new PartitionedSearch<>(client, paginator, executor,
+                "api/hotspots/search?status=TO_REVIEW", "project", "hotspots", Hotspot::from, new ArrayList<>());
+        search.dimensions.add(search.values("sonarsourceSecurity", SECURITY_CATEGORIES));
+        return search;
+    }
+
+    public void fetchAll(String project, PageSink<T> sink) throws IOException, InterruptedException {
+        fetch(new Partition("", 0, null, null), project, sink);
+    }
+
+    private void fetch(Partition partition, String project, PageSink<T> sink) throws IOException, InterruptedException {
+        // Only the total is read first, a partition that gets split never has its results downloaded
+        int total = total(partition, project);
+        if (total <= Paginator.MAX_RESULTS) {
+            paginator.fetchPages(pagedCall(partition), project, arrayKey, mapper, total, sink);
+            return;
+        }
+
+        List<Partition> children = split(partition, project, total);
+        if (children.isEmpty()) {
+            System.err.println("Warning: " + total + " results for " + search + partition.filters()
+                    + " cannot be partitioned further, only the first " + Paginator.MAX_RESULTS + " are reported");
+            paginator.fetchPages(pagedCall(partition), project, arrayKey, mapper, total, sink);
+            return;
+        }
+
+        List<Future<Void>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < children.size(); i++) {
+                while (futures.size() < children.size() && futures.size() < i + PARTITIONS_AHEAD) {
+                    Partition child = children.get(futures.size());
+                    futures.add(executor.submit(() -> {
+                        fetch(child, project, sink);
+                        return null;
+                    }));
+                }
+                Paginator.await(futures.get(i));
+            }
+        } finally {
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /** Results of {@code partition}, read with {@code ps=1}. */
+    private int total(Partition partition, String project) throws IOException, InterruptedException {
+        JSONObject response = client.fetchDataFromURL(search + partition.query() + "&ps=1&" + projectParam + "=", project);
+        return response.has("paging") ? response.getJSONObject("paging").getInt("total") : 0;
+    }
+
+    private List<Partition> split(Partition partition, String project, int total) throws IOException, InterruptedException {
+        for (int i = partition.dimension(); i < dimensions.size(); i++) {
+            List<Partition> children = dimensions.get(i).split(partition.atDimension(i), project, total);
+            if (!children.isEmpty()) {
+                return children;
+            }
+        }
+        return List.of();
+    }
+
+    private String pagedCall(Partition partition) {
+        return escape(search + partition.query()) + "&ps=" + Paginator.PAGE_SIZE + "&p=%d&" + projectParam + "=";
+    }
+
+    private static String escape(String call) {
+        return call.replace("%", "%%");
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /** One filter value per child partition; the values must cover every result. */
+    private Dimension values(String param, String... values) {
+        return (partition, project, total) -> {
+            List<Partition> children = new ArrayList<>();
+            for (String value : values) {
+                children.add(partition.with("&" + param + "=" + encode(value), partition.dimension() + 1));
+            }
+            return children;
+        };
+    }
+
+    /** One child per directory of the {@code directories} facet, skipped when the facet does not cover the total. */
+    private Dimension directories() {
+        return (partition, project, total) -> {
+            JSONObject response = client.fetchDataFromURL(search + partition.query() + "&ps=1&facets=directories&" + projectParam + "=", project);
+            JSONArray facets = response.optJSONArray("facets");
+            if (facets == null || facets.isEmpty()) {
+                return List.of();
+            }
+            JSONArray values = facets.getJSONObject(0).getJSONArray("values");
+            List<Partition> children = new ArrayList<>();
+            long covered = 0;
+            for (int i = 0; i < values.length(); i++) {
+                JSONObject value = values.getJSONObject(i);
+                covered += value.getInt("count");
+                children.add(partition.with("&directories=" + encode(value.getString("val")), partition.dimension() + 1));
+            }
+            return covered < total ? List.of() : children;
+        };
+    }
+
+    /** Halves the creation date range, down to one second. */
+    private Dimension creationDate() {
+        return (partition, project, total) -> {
+            Instant from = partition.createdAfter() != null ? partition.createdAfter() : Instant.EPOCH;
+            // A fixed bound keeps the partition calls identical between runs, for the cache and replay
+            Instant to = partition.createdBefore() != null ? partition.createdBefore() : LATEST_CREATION;
+            long seconds = Duration.between(from, to).getSeconds();
+            if (seconds <= 1) {
+                return List.of();
+            }
+            Instant middle = from.plusSeconds(seconds / 2);
+            return List.of(
+                    new Partition(partition.filters(), partition.dimension(), from, middle),
+                    new Partition(partition.filters(), partition.dimension(), middle, to));
+        };
+    }
+
+    @FunctionalInterface
+    private interface Dimension {
+        List<Partition> split(Partition partition, String project, int total) throws IOException, InterruptedException;
+    }
+
+    private record Partition(String filters, int dimension, Instant createdAfter, Instant createdBefore) {
+
+        Partition with(String filter, int nextDimension) {
+            return new Partition(filters + filter, nextDimension, createdAfter, createdBefore);
+        }
+
+        Partition atDimension(int index) {
+            return new Partition(filters, index, createdAfter, createdBefore);
+        }
+
+        /** Filters plus the creation date range ({@code createdAfter} inclusive, {@code createdBefore} exclusive). */
+        String query() {
+            StringBuilder query = new StringBuilder(filters);
+            if (createdAfter != null) {
+                query.append("&createdAfter=").append(encode(SONAR_DATE.format(createdAfter)));
+            }
+            if (createdBefore != null) {
+                query.append("&createdBefore=").append(encode(SONAR_DATE.format(createdBefore)));
+            }
+            return query.toString();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Records every exchange into a zip archive that {@link ReplayTransport} can serve later
+ * without a server. Each entry is named {@code <status>/<path>}, the path being the call
+ * relative to the API url, and holds the decoded body. The API url and token are not
+ * recorded.
+ */
+public class RecordingTransport implements SonarTransport, Closeable {
+    private final SonarTransport delegate;
+    private final ZipOutputStream archive;
+    private final Set<String> recorded = new HashSet<>();
+
+    public RecordingTransport(SonarTransport delegate, Path archive) throws IOException {
+        this.delegate = delegate;
+        this.archive = new ZipOutputStream(Files.newOutputStream(archive));
+    }
+
+    @Override
+    public SonarResponse get(String path, Map<String, String> headers) throws IOException, InterruptedException {
+        SonarResponse response = delegate.get(path, headers);
+        byte[] body;
+        try {
+            body = response.body().readAllBytes();
+            synchronized (this) {
+                if (recorded.add(path)) {
+                    archive.putNextEntry(new ZipEntry(response.statusCode() + "/" + path));
+                    archive.write(body);
+                    archive.closeEntry();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            response.close();
+            throw e;
+        }
+        return new SonarResponse(response.statusCode(), response.headers(), new RecordedBody(body, response));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        archive.close();
+    }
+
+    /** The recorded bytes, for the caller; the response they were read from is committed and closed with them. */
+    private static class RecordedBody extends ByteArrayInputStream implements SonarResponse.Committable {
+        private final SonarResponse response;
+
+        RecordedBody(byte[] body, SonarResponse response) {
+            super(body);
+            this.response = response;
+        }
+
+        @Override
+        public void commit() {
+            response.commit();
+        }
+
+        @Override
+        public void close() throws IOException {
+            response.close();
+        }
+    }
+}
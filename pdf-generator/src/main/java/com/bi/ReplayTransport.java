@@ -0,0 +1,41 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Serves the exchanges of an archive written by {@link RecordingTransport}, without any
+ * network access. A call that was not recorded fails.
+ */
+public class ReplayTransport implements SonarTransport, Closeable {
+    private final ZipFile archive;
+    private final Map<String, ZipEntry> entries = new HashMap<>();
+
+    public ReplayTransport(Path archive) throws IOException {
+        this.archive = new ZipFile(archive.toFile());
+        Enumeration<? extends ZipEntry> all = this.archive.entries();
+        while (all.hasMoreElements()) {
+            ZipEntry entry = all.nextElement();
+            entries.put(entry.getName().substring(entry.getName().indexOf('/') + 1), entry);
+        }
+    }
+
+    @Override
+    public SonarResponse get(String path, Map<String, String> headers) throws IOException {
+        ZipEntry entry = entries.get(path);
+        if (entry == null) {
+            throw new IOException("No recorded response for " + path);
+        }
+        int statusCode = Integer.parseInt(entry.getName().substring(0, entry.getName().indexOf('/')));
+        return new SonarResponse(statusCode, SonarResponse.headers(Map.of()), archive.getInputStream(entry));
+    }
+
+    @Override
+    public void close() throws IOException {
+        archive.close();
+    }
+}
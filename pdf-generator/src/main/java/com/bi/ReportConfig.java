@@ -0,0 +1,169 @@
+/**
+ * Tunables for a report run, read from {@code -Dsonar.report.*} system properties.
+ */
+public class ReportConfig {
+    private final int connectTimeoutSeconds;
+    private final int httpThreads;
+    private final int parallelRequests;
+    private final int pageWindow;
+    private final String cacheDir;
+    private final int cacheMaxMb;
+    private final int retries;
+    private final boolean transferStats;
+    private final int requestTimeoutSeconds;
+    private final int fetchDeadlineSeconds;
+    private final boolean hedging;
+    private final String recordArchive;
+    private final String replayArchive;
+    private final int maxRuleGroups;
+    private final int maxLocations;
+    private final int pdfMemoryMb;
+    private final String pdfTempDir;
+    private final int renderThreads;
+
+    private ReportConfig(int connectTimeoutSeconds, int httpThreads, int parallelRequests, int pageWindow, String cacheDir, int cacheMaxMb,
+            int retries, boolean transferStats, int requestTimeoutSeconds, int fetchDeadlineSeconds, boolean hedging,
+            String recordArchive, String replayArchive, int maxRuleGroups, int maxLocations, int pdfMemoryMb, String pdfTempDir,
+            int renderThreads) {
+        if (recordArchive != null && replayArchive != null) {
+            throw new IllegalArgumentException("sonar.report.record and sonar.report.replay cannot be used together");
+        }
+        this.connectTimeoutSeconds = connectTimeoutSeconds;
+        this.httpThreads = httpThreads;
+        this.parallelRequests = parallelRequests;
+        this.pageWindow = pageWindow;
+        this.cacheDir = cacheDir;
+        this.cacheMaxMb = cacheMaxMb;
+        this.retries = retries;
+        this.transferStats = transferStats;
+        this.requestTimeoutSeconds = requestTimeoutSeconds;
+        this.fetchDeadlineSeconds = fetchDeadlineSeconds;
+        this.hedging = hedging;
+        this.recordArchive = recordArchive;
+        this.replayArchive = replayArchive;
+        this.maxRuleGroups = maxRuleGroups;
+        this.maxLocations = maxLocations;
+        this.pdfMemoryMb = pdfMemoryMb;
+        this.pdfTempDir = pdfTempDir;
+        this.renderThreads = renderThreads;
+    }
+
+    public static ReportConfig fromSystemProperties() {
+        return new ReportConfig(
+                positive("sonar.report.connectTimeout", 10),
+                positive("sonar.report.httpThreads", 4),
+                positive("sonar.report.parallelRequests", 6),
+                positive("sonar.report.pageWindow", 4),
+                System.getProperty("sonar.report.cacheDir"),
+                positive("sonar.report.cacheMaxMb", 256),
+                notNegative("sonar.report.retries", 3),
+                Boolean.getBoolean("sonar.report.transferStats"),
+                positive("sonar.report.requestTimeout", 120),
+                notNegative("sonar.report.fetchDeadline", 0),
+                Boolean.getBoolean("sonar.report.hedging"),
+                System.getProperty("sonar.report.record"),
+                System.getProperty("sonar.report.replay"),
+                notNegative("sonar.report.maxRuleGroups", 200),
+                notNegative("sonar.report.maxLocations", 50),
+                notNegative("sonar.report.pdfMemoryMb", 64),
+                System.getProperty("sonar.report.pdfTempDir"),
+                positive("sonar.report.renderThreads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    private static int positive(String property, int defaultValue) {
+        int value = Integer.getInteger(property, defaultValue);
+        if (value <= 0) {
+            throw new IllegalArgumentException(property + " must be greater than 0, was " + value);
+        }
+        return value;
+    }
+
+    private static int notNegative(String property, int defaultValue) {
+        int value = Integer.getInteger(property, defaultValue);
+        if (value < 0) {
+            throw new IllegalArgumentException(property + " must not be negative, was " + value);
+        }
+        return value;
+    }
+
+    public int getConnectTimeoutSeconds() {
+        return connectTimeoutSeconds;
+    }
+
+    public int getHttpThreads() {
+        return httpThreads;
+    }
+
+    public int getParallelRequests() {
+        return parallelRequests;
+    }
+
+    public int getPageWindow() {
+        return pageWindow;
+    }
+
+    /** Directory of the response cache, {@code null} when caching is off. */
+    public String getCacheDir() {
+        return cacheDir;
+    }
+
+    public long getCacheMaxBytes() {
+        return cacheMaxMb * 1024L * 1024L;
+    }
+
+    public int getRetries() {
+        return retries;
+    }
+
+    public boolean isTransferStats() {
+        return transferStats;
+    }
+
+    public int getRequestTimeoutSeconds() {
+        return requestTimeoutSeconds;
+    }
+
+    /** Upper bound in seconds of the whole fetch phase, 0 when unbounded. */
+    public int getFetchDeadlineSeconds() {
+        return fetchDeadlineSeconds;
+    }
+
+    public boolean isHedging() {
+        return hedging;
+    }
+
+    /** Archive every exchange is recorded to, {@code null} when not recording. */
+    public String getRecordArchive() {
+        return recordArchive;
+    }
+
+    /** Archive responses are replayed from instead of the server, {@code null} when not replaying. */
+    public String getReplayArchive() {
+        return replayArchive;
+    }
+
+    /** Rules listed in each of the hotspot and issue lists, 0 for all. */
+    public int getMaxRuleGroups() {
+        return maxRuleGroups;
+    }
+
+    /** Locations listed per rule, 0 for all. */
+    public int getMaxLocations() {
+        return maxLocations;
+    }
+
+    /** Main memory the PDF being written may buffer before it spills to a scratch file, 0 to spill everything. */
+    public long getPdfMemoryBytes() {
+        return pdfMemoryMb * 1024L * 1024L;
+    }
+
+    /** Directory of the PDF scratch file, {@code null} for the system temporary directory. */
+    public String getPdfTempDir() {
+        return pdfTempDir;
+    }
+
+    /** Threads the sections of the PDF are written on, at most one per section is used. */
+    public int getRenderThreads() {
+        return renderThreads;
+    }
+}
@@ -0,0 +1,16 @@
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Everything the report renders, fetched up front by {@link ReportFetcher}. Hotspots and
+ * issues are already grouped by rule, the raw search pages are not kept.
+ */
+public record ReportData(
+        JSONObject component,
+        Measures measures,
+        JSONObject projectStatus,
+        JSONArray securityCategories,
+        RuleAggregator<Hotspot> hotspots,
+        IssueMatrix issueMatrix,
+        RuleAggregator<Issue> issues) {
+}
@@ -0,0 +1,136 @@
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Fetch phase of the report: every SonarQube call is started at once and the
+ * result is only handed to rendering when all of them have arrived. The number of
+ * requests actually on the wire is bounded by {@link SonarClient}, and the whole phase
+ * by the optional fetch deadline.
+ */
+public class ReportFetcher {
+    private final SonarClient client;
+    private final String project;
+    private final ExecutorService executor;
+    private final Paginator paginator;
+    private final int deadlineSeconds;
+    private final int maxLocations;
+    private long deadline;
+
+    public ReportFetcher(SonarClient client, String project, ReportConfig config) {
+        this.client = client;
+        this.project = project;
+        this.executor = Executors.newCachedThreadPool(SonarClient.daemonThreads("sonar-fetch"));
+        this.paginator = new Paginator(client, executor, config.getPageWindow());
+        this.deadlineSeconds = config.getFetchDeadlineSeconds();
+        this.maxLocations = config.getMaxLocations();
+    }
+
+    public ReportData fetchAll() throws IOException, InterruptedException {
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(deadlineSeconds);
+        try {
+            CompletableFuture<JSONObject> component = call("api/navigation/component?component=");
+            if (client.isCaching()) {
+                // Everything else is cached per analysis, which only the component tells
+                JSONObject navigation = await(component);
+                client.useAnalysis(project, navigation.optString("branch"), navigation.optString("analysisDate"));
+            }
+            CompletableFuture<Measures> measures = call("api/measures/component?metricKeys=" + Metric.allKeys() + "&component=")
+                    .thenApply(json -> Measures.parse(json.getJSONObject("component")));
+            CompletableFuture<JSONObject> projectStatus = call("api/qualitygates/project_status?projectKey=")
+                    .thenApply(json -> json.getJSONObject("projectStatus"));
+            CompletableFuture<JSONArray> securityCategories = call("api/security_reports/show?standard=sonarsourceSecurity&project=")
+                    .thenApply(json -> json.getJSONArray("categories"));
+            CompletableFuture<RuleAggregator<Hotspot>> hotspots = async(() -> {
+                RuleAggregator<Hotspot> groups = RuleAggregator.hotspots(maxLocations);
+                PartitionedSearch.hotspots(client, paginator, executor).fetchAll(project, groups::addAll);
+                return groups;
+            });
+            CompletableFuture<IssueMatrix> issueMatrix = issueMatrix();
+            CompletableFuture<RuleAggregator<Issue>> issues = async(() -> {
+                RuleAggregator<Issue> groups = RuleAggregator.issues(maxLocations);
+                PartitionedSearch.issues(client, paginator, executor).fetchAll(project, groups::addAll);
+                return groups;
+            });
+
+            await(CompletableFuture.allOf(component, measures, projectStatus, securityCategories, hotspots,
+                    issueMatrix, issues));
+
+            return new ReportData(component.join(), measures.join(), projectStatus.join(), securityCategories.join(), hotspots.join(),
+                    issueMatrix.join(), issues.join());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private CompletableFuture<IssueMatrix> issueMatrix() {
+        IssueMatrix matrix = new IssueMatrix();
+        CompletableFuture<?>[] calls = new CompletableFuture<?>[IssueMatrix.TYPES.length];
+        for (int i = 0; i < IssueMatrix.TYPES.length; i++) {
+            String type = IssueMatrix.TYPES[i];
+            calls[i] = call(IssueMatrix.call(type)).thenAccept(json -> matrix.put(type, json));
+        }
+        return CompletableFuture.allOf(calls).thenApply(ignored -> matrix);
+    }
+
+    private CompletableFuture<JSONObject> call(String call) {
+        return async(() -> client.fetchDataFromURL(call, project));
+    }
+
+    private <T> CompletableFuture<T> async(Fetch<T> fetch) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return fetch.get();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /** Waits for {@code future} within the fetch deadline. */
+    private <T> T await(CompletableFuture<T> future) throws IOException, InterruptedException {
+        try {
+            if (deadlineSeconds == 0) {
+                return future.get();
+            }
+            return future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new IOException("Fetching the report took longer than the " + deadlineSeconds + " s deadline");
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static IOException unwrap(ExecutionException e) throws InterruptedException {
+        Throwable cause = e.getCause();
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof InterruptedException) {
+            throw (InterruptedException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        return new IOException(cause);
+    }
+
+    @FunctionalInterface
+    interface Fetch<T> {
+        T get() throws IOException, InterruptedException;
+    }
+}
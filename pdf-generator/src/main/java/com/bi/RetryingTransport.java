@@ -0,0 +1,59 @@
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries GETs, which are idempotent, when the server is throttling or briefly unavailable
+ * (429, 502, 503, 504) or the exchange failed on the network. The wait is the server's
+ * {@code Retry-After} when given, up to the longest backoff, otherwise an exponential
+ * backoff with full jitter.
+ */
+public class RetryingTransport implements SonarTransport {
+    private static final long BASE_DELAY_MILLIS = 500;
+    private static final long MAX_DELAY_MILLIS = 30_000;
+
+    private final SonarTransport delegate;
+    private final int retries;
+
+    public RetryingTransport(SonarTransport delegate, int retries) {
+        this.delegate = delegate;
+        this.retries = retries;
+    }
+
+    @Override
+    public SonarResponse get(String path, Map<String, String> headers) throws IOException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            SonarResponse response;
+            try {
+                response = delegate.get(path, headers);
+            } catch (IOException e) {
+                if (attempt >= retries) {
+                    throw e;
+                }
+                Thread.sleep(backoff(attempt));
+                continue;
+            }
+            if (attempt >= retries || !isTransient(response.statusCode())) {
+                return response;
+            }
+            Duration retryAfter = response.retryAfter();
+            response.close();
+            Thread.sleep(retryAfter != null ? capped(retryAfter).toMillis() : backoff(attempt));
+        }
+    }
+
+    static boolean isTransient(int statusCode) {
+        return statusCode == 429 || statusCode == 502 || statusCode == 503 || statusCode == 504;
+    }
+
+    /** {@code retryAfter} cut to the longest backoff, so a server or proxy asking for hours does not stall the run. */
+    static Duration capped(Duration retryAfter) {
+        return retryAfter.toMillis() > MAX_DELAY_MILLIS ? Duration.ofMillis(MAX_DELAY_MILLIS) : retryAfter;
+    }
+
+    private static long backoff(int attempt) {
+        long ceiling = Math.min(MAX_DELAY_MILLIS, BASE_DELAY_MILLIS << Math.min(attempt, 16));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+}
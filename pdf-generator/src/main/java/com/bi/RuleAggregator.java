@@ -0,0 +1,140 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Groups findings by rule, counting them and collecting their locations. Component keys
+ * are interned in a {@link ComponentDictionary} so each path is held once. Groups are
+ * ranked most important first: issues by severity, hotspots by vulnerability probability,
+ * then both by count.
+ * <p>
+ * Pages may be added from several fetch threads at once: each page is first grouped
+ * locally, then merged into the shared {@link RuleGroup}s, one short lock per rule of the
+ * page. The result does not depend on the order pages arrive in.
+ */
+public class RuleAggregator<T> {
+    private static final String[] PROBABILITIES = { "LOW", "MEDIUM", "HIGH" };
+
+    private final Map<String, RuleGroup<T>> groups = new ConcurrentHashMap<>();
+    private final ComponentDictionary components = new ComponentDictionary();
+    private final Function<T, String> ruleKey;
+    private final Function<T, String> findingKey;
+    private final Function<T, String> component;
+    private final ToIntFunction<T> line;
+    private final Comparator<RuleGroup<T>> ranking;
+    private final int maxLocations;
+
+    private RuleAggregator(Function<T, String> ruleKey, Function<T, String> findingKey, Function<T, String> component,
+            ToIntFunction<T> line, Comparator<RuleGroup<T>> ranking, int maxLocations) {
+        this.ruleKey = ruleKey;
+        this.findingKey = findingKey;
+        this.component = component;
+        this.line = line;
+        this.ranking = ranking
+                .thenComparing(Comparator.comparingInt((RuleGroup<T> group) -> group.getCount()).reversed())
+                .thenComparing(RuleGroup::getRuleKey);
+        this.maxLocations = maxLocations > 0 ? maxLocations : Integer.MAX_VALUE;
+    }
+
+    /** @param maxLocations locations kept per rule, 0 for all */
+    public static RuleAggregator<Issue> issues(int maxLocations) {
+        return new RuleAggregator<>(Issue::rule, Issue::key, Issue::component, Issue::line,
+                descending(IssueMatrix.SEVERITIES, Issue::severity), maxLocations);
+    }
+
+    /** @param maxLocations locations kept per rule, 0 for all */
+    public static RuleAggregator<Hotspot> hotspots(int maxLocations) {
+        return new RuleAggregator<>(Hotspot::ruleKey, Hotspot::key, Hotspot::component, Hotspot::line,
+                descending(PROBABILITIES, Hotspot::vulnerabilityProbability), maxLocations);
+    }
+
+    /** Groups whose shown finding has the later value of {@code ascending} first, unknown values last. */
+    private static <T> Comparator<RuleGroup<T>> descending(String[] ascending, Function<T, String> attribute) {
+        List<String> order = Arrays.asList(ascending);
+        return Comparator.comparingInt((RuleGroup<T> group) -> order.indexOf(attribute.apply(group.getFinding()))).reversed();
+    }
+
+    /** Adds a page of findings; may be called from several threads at once. */
+    public void addAll(List<T> findings) {
+        Map<String, Batch<T>> batches = new HashMap<>();
+        for (T finding : findings) {
+            batches.computeIfAbsent(ruleKey.apply(finding), key -> new Batch<>())
+                    .add(finding, findingKey.apply(finding), components.id(component.apply(finding)), line.applyAsInt(finding), components);
+        }
+        batches.forEach((key, batch) -> groups.computeIfAbsent(key, k -> new RuleGroup<>(k, components, maxLocations))
+                .merge(batch.finding, batch.findingKey, batch.findingFile, batch.findingLine, batch.files, batch.lines, batch.size));
+    }
+
+    public Collection<RuleGroup<T>> groups() {
+        return groups.values();
+    }
+
+    /**
+     * The {@code limit} highest ranked groups, in rank order, or all of them when
+     * {@code limit} is 0. They are picked with a heap of {@code limit} entries, the other
+     * groups are never sorted.
+     */
+    public List<RuleGroup<T>> top(int limit) {
+        if (limit <= 0 || limit >= groups.size()) {
+            List<RuleGroup<T>> all = new ArrayList<>(groups.values());
+            all.sort(ranking);
+            return all;
+        }
+        // Worst ranked of the kept groups on top, so it is the one evicted
+        PriorityQueue<RuleGroup<T>> heap = new PriorityQueue<>(limit, ranking.reversed());
+        for (RuleGroup<T> group : groups.values()) {
+            if (heap.size() < limit) {
+                heap.add(group);
+            } else if (ranking.compare(group, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(group);
+            }
+        }
+        List<RuleGroup<T>> top = new ArrayList<>(heap);
+        top.sort(ranking);
+        return top;
+    }
+
+    /** The findings of one rule within a page, grouped before touching the shared group. */
+    private static class Batch<T> {
+        T finding;
+        String findingKey;
+        int findingFile;
+        int findingLine;
+        int[] files = new int[8];
+        int[] lines = new int[8];
+        int size;
+
+        void add(T candidate, String candidateKey, int file, int line, ComponentDictionary components) {
+            if (finding == null) {
+                finding = candidate;
+                findingKey = candidateKey;
+                findingFile = file;
+                findingLine = line;
+            } else {
+                int order = components.compare(file, line, findingFile, findingLine);
+                if (order < 0 || order == 0 && candidateKey.compareTo(findingKey) < 0) {
+                    finding = candidate;
+                    findingKey = candidateKey;
+                    findingFile = file;
+                    findingLine = line;
+                }
+            }
+            if (size == files.length) {
+                files = Arrays.copyOf(files, size * 2);
+                lines = Arrays.copyOf(lines, size * 2);
+            }
+            files[size] = file;
+            lines[size] = line;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The findings of one rule: how many there are, their locations and the finding shown
+ * for the rule, which gives the message and attributes. A location is a pair of ints,
+ * the component id in the shared {@link ComponentDictionary} and the line, 0 for file
+ * level findings.
+ * <p>
+ * Batches of findings are merged from several fetch threads. So that the report does not
+ * depend on which thread got there first, locations are listed by path and line, and the
+ * finding shown is the one at the first location. When locations are capped, the
+ * {@code maxLocations} first in that order are kept and the rest are only counted.
+ */
+public class RuleGroup<T> {
+    private final String ruleKey;
+    private final ComponentDictionary components;
+    private final int maxLocations;
+    private final LongAdder count = new LongAdder();
+    private T finding;
+    private int findingFile;
+    private int findingLine;
+    private String findingKey;
+    private int[] files = new int[4];
+    private int[] lines = new int[4];
+    private int stored;
+    private boolean sorted = true;
+
+    RuleGroup(String ruleKey, ComponentDictionary components, int maxLocations) {
+        this.ruleKey = ruleKey;
+        this.components = components;
+        this.maxLocations = maxLocations;
+    }
+
+    /**
+     * Adds {@code size} locations, and {@code candidate} at {@code candidateFile:candidateLine}
+     * as the finding shown if it comes before the current one.
+     */
+    void merge(T candidate, String candidateKey, int candidateFile, int candidateLine, int[] batchFiles, int[] batchLines, int size) {
+        count.add(size);
+        synchronized (this) {
+            if (finding == null || before(candidateFile, candidateLine, candidateKey)) {
+                finding = candidate;
+                findingFile = candidateFile;
+                findingLine = candidateLine;
+                findingKey = candidateKey;
+            }
+            if (stored + size > files.length) {
+                int capacity = Math.max(files.length * 2, stored + size);
+                files = Arrays.copyOf(files, capacity);
+                lines = Arrays.copyOf(lines, capacity);
+            }
+            System.arraycopy(batchFiles, 0, files, stored, size);
+            System.arraycopy(batchLines, 0, lines, stored, size);
+            stored += size;
+            sorted = false;
+            // Only the first maxLocations survive, trim once there is twice that
+            if (stored > 2L * maxLocations) {
+                sortLocations();
+                stored = maxLocations;
+            }
+        }
+    }
+
+    private boolean before(int file, int line, String key) {
+        int order = components.compare(file, line, findingFile, findingLine);
+        return order < 0 || order == 0 && key.compareTo(findingKey) < 0;
+    }
+
+    /**
+     * Sorts the locations by path and line. The distinct paths are ranked once, then each
+     * location is sorted as a long holding its path rank above its line.
+     */
+    private void sortLocations() {
+        if (sorted) {
+            return;
+        }
+        String[] paths = new String[stored];
+        for (int i = 0; i < stored; i++) {
+            paths[i] = components.path(files[i]);
+        }
+        String[] ranked = paths.clone();
+        Arrays.sort(ranked);
+        int distinct = 0;
+        for (String path : ranked) {
+            if (distinct == 0 || !path.equals(ranked[distinct - 1])) {
+                ranked[distinct++] = path;
+            }
+        }
+        // Components with the same path are shown the same, any of their ids will do
+        int[] fileOfRank = new int[distinct];
+        long[] keys = new long[stored];
+        for (int i = 0; i < stored; i++) {
+            int rank = Arrays.binarySearch(ranked, 0, distinct, paths[i]);
+            fileOfRank[rank] = files[i];
+            keys[i] = (long) rank << 32 | (lines[i] - (long) Integer.MIN_VALUE);
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < stored; i++) {
+            files[i] = fileOfRank[(int) (keys[i] >>> 32)];
+            lines[i] = (int) (keys[i] + Integer.MIN_VALUE);
+        }
+        sorted = true;
+    }
+
+    public String getRuleKey() {
+        return ruleKey;
+    }
+
+    public synchronized T getFinding() {
+        return finding;
+    }
+
+    public int getCount() {
+        return count.intValue();
+    }
+
+    /** Number of locations listed, at most {@code maxLocations}. */
+    public synchronized int getLocationCount() {
+        return Math.min(stored, maxLocations);
+    }
+
+    /**
+     * The locations as shown in the report, {@code path: line} separated by {@code " | "},
+     * followed by an "and N more" line when some were not kept.
+     */
+    public synchronized String locationsText() {
+        sortLocations();
+        int listed = getLocationCount();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < listed; i++) {
+            if (i > 0) {
+                text.append(" | ");
+            }
+            text.append(components.path(files[i]));
+            if (lines[i] > 0) {
+                text.append(": ").append(lines[i]);
+            }
+        }
+        int count = getCount();
+        if (count > listed) {
+            text.append("\nand ").append(count - listed).append(" more");
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,85 @@
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Pull parser for search responses. The elements of the result array are handed to a
+ * consumer one at a time while the body is still being read, so a page never exists as
+ * a complete DOM. Other arrays of the response (components, rules, users...) are parsed
+ * and dropped; only the scalar fields and objects such as {@code paging} are returned.
+ */
+public class SearchPageReader {
+
+    private SearchPageReader() {
+    }
+
+    public static JSONObject read(InputStream body, String arrayKey, Consumer<JSONObject> element) {
+        return read(new InputStreamReader(body, StandardCharsets.UTF_8), arrayKey, element);
+    }
+
+    public static JSONObject read(Reader body, String arrayKey, Consumer<JSONObject> element) {
+        JSONTokener tokener = new JSONTokener(body);
+        JSONObject rest = new JSONObject();
+        if (tokener.nextClean() != '{') {
+            throw tokener.syntaxError("A search response must begin with '{'");
+        }
+        if (tokener.nextClean() == '}') {
+            return rest;
+        }
+        tokener.back();
+
+        while (true) {
+            String key = tokener.nextValue().toString();
+            if (tokener.nextClean() != ':') {
+                throw tokener.syntaxError("Expected a ':' after a key");
+            }
+            if (key.equals(arrayKey)) {
+                readArray(tokener, element);
+            } else {
+                Object value = tokener.nextValue();
+                if (!(value instanceof JSONArray)) {
+                    rest.put(key, value);
+                }
+            }
+            switch (tokener.nextClean()) {
+                case ',':
+                    break;
+                case '}':
+                    return rest;
+                default:
+                    throw tokener.syntaxError("Expected a ',' or '}'");
+            }
+        }
+    }
+
+    private static void readArray(JSONTokener tokener, Consumer<JSONObject> element) {
+        if (tokener.nextClean() != '[') {
+            throw tokener.syntaxError("Expected an array");
+        }
+        if (tokener.nextClean() == ']') {
+            return;
+        }
+        tokener.back();
+
+        while (true) {
+            Object value = tokener.nextValue();
+            if (value instanceof JSONObject) {
+                element.accept((JSONObject) value);
+            }
+            switch (tokener.nextClean()) {
+                case ',':
+                    break;
+                case ']':
+                    return;
+                default:
+                    throw tokener.syntaxError("Expected a ',' or ']'");
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes independent sections of a report at the same time, each into a
+ * {@link PDFReportWriter} of its own, and appends them in order to the first one. Page
+ * numbers, the index and the footers are only laid out when that writer is saved, so they
+ * cover the merged document.
+ * <p>
+ * A section is written by one thread from start to end, so no more threads than sections
+ * are used and the longest section bounds the time it takes.
+ */
+public class SectionRenderer {
+
+    @FunctionalInterface
+    public interface Section {
+        void write(PDFReportWriter pdf) throws IOException;
+    }
+
+    private SectionRenderer() {
+    }
+
+    /** @return the writer holding every section, in the given order */
+    public static PDFReportWriter render(ReportConfig config, List<Section> sections) throws IOException, InterruptedException {
+        List<PDFReportWriter> writers = PDFReportWriter.sections(config, sections.size());
+        int threads = Math.min(config.getRenderThreads(), sections.size());
+        ExecutorService executor = Executors.newFixedThreadPool(threads, SonarClient.daemonThreads("pdf-render"));
+        List<Future<Void>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < sections.size(); i++) {
+                Section section = sections.get(i);
+                PDFReportWriter writer = writers.get(i);
+                futures.add(executor.submit(() -> {
+                    section.write(writer);
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                await(future);
+            }
+        } catch (Throwable failure) {
+            // No writer is closed while a section may still be writing to it
+            stop(executor);
+            for (PDFReportWriter writer : writers) {
+                try {
+                    writer.close();
+                } catch (IOException | RuntimeException e) {
+                    failure.addSuppressed(e);
+                }
+            }
+            throw failure;
+        } finally {
+            executor.shutdown();
+        }
+
+        PDFReportWriter report = writers.get(0);
+        for (int i = 1; i < writers.size(); i++) {
+            report.append(writers.get(i));
+        }
+        return report;
+    }
+
+    /**
+     * Interrupts the sections still running, drops those not started and waits for the
+     * running ones to return. A section that does not check for interrupts is waited for
+     * until it ends; an interrupt meanwhile is kept for the caller.
+     */
+    private static void stop(ExecutorService executor) {
+        executor.shutdownNow();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(Future<Void> future) throws IOException, InterruptedException {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Single entry point for every SonarQube call of a report run. Requests go through a
+ * {@link SonarTransport}: the shared {@link HttpTransport}, optionally hedged
+ * ({@link HedgingTransport}), wrapped in a {@link RetryingTransport}, then, when a cache
+ * directory is configured, a {@link CachingTransport} and, outermost so that cache hits
+ * are recorded too, an optional {@link RecordingTransport}. When replaying, a
+ * {@link ReplayTransport} takes the place of the network. An exchange whose body stalls
+ * is sent again, up to the configured retries.
+ */
+public class SonarClient implements Closeable {
+    private final SonarTransport transport;
+    private final TransferStats transferStats;
+    private final CachingTransport cache;
+    private final Closeable archive;
+    private final int retries;
+
+    public SonarClient(String apiUrl, String authToken, ReportConfig config) throws IOException {
+        this.retries = config.getRetries();
+        SonarTransport source;
+        ReplayTransport replay = null;
+        if (config.getReplayArchive() != null) {
+            replay = new ReplayTransport(Path.of(config.getReplayArchive()));
+            this.transferStats = new TransferStats();
+            source = replay;
+        } else {
+            HttpTransport network = new HttpTransport(apiUrl, authToken, config);
+            this.transferStats = network.getTransferStats();
+            source = new RetryingTransport(config.isHedging() ? new HedgingTransport(network) : network, config.getRetries());
+        }
+        if (config.getCacheDir() != null) {
+            this.cache = new CachingTransport(source, apiUrl, Path.of(config.getCacheDir()), config.getCacheMaxBytes());
+            source = cache;
+        } else {
+            this.cache = null;
+        }
+        if (config.getRecordArchive() != null) {
+            RecordingTransport recording = new RecordingTransport(source, Path.of(config.getRecordArchive()));
+            this.archive = recording;
+            source = recording;
+        } else {
+            this.archive = replay;
+        }
+        this.transport = source;
+    }
+
+    public TransferStats getTransferStats() {
+        return transferStats;
+    }
+
+    public boolean isCaching() {
+        return cache != null;
+    }
+
+    /** Scopes cached responses to one analysis, see {@link CachingTransport#useAnalysis}. */
+    public void useAnalysis(String project, String branch, String analysisDate) {
+        if (cache != null) {
+            cache.useAnalysis(project, branch, analysisDate);
+        }
+    }
+
+    public JSONObject fetchDataFromURL(String call, String projectKey) throws IOException, InterruptedException {
+        return exchange(call, projectKey, body -> new JSONObject(new JSONTokener(new InputStreamReader(body, StandardCharsets.UTF_8))));
+    }
+
+    /**
+     * Streams one page of a search call: every element of {@code arrayKey} is mapped as soon as
+     * it is parsed and added to {@code items}, and the rest of the response (paging) is returned.
+     * {@code items} is emptied first, so a page read again after its body stalled is not doubled.
+     */
+    public <T> JSONObject fetchSearchPage(String call, String projectKey, String arrayKey, Function<JSONObject, T> mapper, List<T> items)
+            throws IOException, InterruptedException {
+        return exchange(call, projectKey, body -> {
+            items.clear();
+            return SearchPageReader.read(body, arrayKey, json -> items.add(mapper.apply(json)));
+        });
+    }
+
+    private <T> T exchange(String call, String projectKey, BodyReader<T> reader) throws IOException, InterruptedException {
+        String path = call + URLEncoder.encode(projectKey, StandardCharsets.UTF_8);
+        for (int attempt = 0; ; attempt++) {
+            try (SonarResponse response = transport.get(path, Map.of())) {
+                if (response.isSuccess()) {
+                    T result = reader.read(response.body());
+                    response.commit();
+                    return result;
+                }
+                throw new IOException("Error al obtener datos de la URL: Código de estado " + response.statusCode() + ", Cuerpo: " + response.bodyAsString());
+            } catch (IOException | RuntimeException e) {
+                HttpTransport.StalledBodyException stalled = stalled(e);
+                if (stalled == null) {
+                    throw e;
+                }
+                if (attempt >= retries) {
+                    throw stalled;
+                }
+            }
+        }
+    }
+
+    /** The stalled body {@code e} comes from, if any; the JSON parser wraps it in an unchecked exception. */
+    private static HttpTransport.StalledBodyException stalled(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpTransport.StalledBodyException) {
+                return (HttpTransport.StalledBodyException) cause;
+            }
+        }
+        return null;
+    }
+
+    /** Completes the recorded archive, or releases the replayed one. */
+    @Override
+    public void close() throws IOException {
+        if (archive != null) {
+            archive.close();
+        }
+    }
+
+    static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @FunctionalInterface
+    interface BodyReader<T> {
+        T read(InputStream body) throws IOException;
+    }
+}
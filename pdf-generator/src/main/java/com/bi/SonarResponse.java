@@ -0,0 +1,69 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpHeaders;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Status, headers and still unread body of a SonarQube response. It must be closed.
+ */
+public record SonarResponse(int statusCode, HttpHeaders headers, InputStream body) implements Closeable {
+
+    public static HttpHeaders headers(Map<String, List<String>> headers) {
+        return HttpHeaders.of(headers, (name, value) -> true);
+    }
+
+    public boolean isSuccess() {
+        return statusCode >= 200 && statusCode < 300;
+    }
+
+    /** The {@code Retry-After} header, in seconds or as an HTTP date, or {@code null}. */
+    public Duration retryAfter() {
+        String value = headers.firstValue("Retry-After").orElse(null);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                Instant at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+                Duration wait = Duration.between(Instant.now(), at);
+                return wait.isNegative() ? Duration.ZERO : wait;
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Tells the transports below that the body was read and understood. The caching
+     * transport only keeps a response that was committed before it was closed.
+     */
+    public void commit() {
+        if (body instanceof Committable) {
+            ((Committable) body).commit();
+        }
+    }
+
+    public String bodyAsString() throws IOException {
+        return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        body.close();
+    }
+
+    /** A body whose transport wants to know that it was read successfully, see {@link #commit}. */
+    public interface Committable {
+        void commit();
+    }
+}
@@ -0,0 +1,15 @@
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Carries one GET to SonarQube. Implementations are layered: the network transport
+ * at the bottom, caching and other concerns wrapped around it.
+ */
+public interface SonarTransport {
+
+    /**
+     * @param path call relative to the API url, query string included
+     * @param headers extra request headers
+     */
+    SonarResponse get(String path, Map<String, String> headers) throws IOException, InterruptedException;
+}
@@ -0,0 +1,198 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A table measured once and ready to be drawn: column widths sized from the content,
+ * the wrapped lines of every cell with their widths, row heights, and the rows that
+ * start a new page. Each cell is measured once to size the columns; a cell that then
+ * fits on one line keeps that width, only the others go through {@link LineBreaker}.
+ * Drawing it measures no text, and the same layout can be drawn again as long as it
+ * starts at the same height.
+ */
+public class TableLayout {
+    private static final float PADDING = 10;
+
+    /**
+     * @param cells lines of each column
+     * @param newPage whether the row goes at the top of a new page, under a repeated header
+     */
+    public record Row(List<List<LineBreaker.Line>> cells, float height, boolean newPage) {
+    }
+
+    private final float[] columnWidths;
+    private final float width;
+    private final float fontSize;
+    private final float leading;
+    private final Row header;
+    private final List<Row> rows;
+
+    private TableLayout(float[] columnWidths, float width, float fontSize, float leading, Row header, List<Row> rows) {
+        this.columnWidths = columnWidths;
+        this.width = width;
+        this.fontSize = fontSize;
+        this.leading = leading;
+        this.header = header;
+        this.rows = rows;
+    }
+
+    /**
+     * @param headerWidths font of the header row
+     * @param bodyWidths font of the other rows
+     * @param top height the table starts at
+     * @param pageTop height a table continued on a new page starts at
+     * @param bottom lowest height a row may reach
+     */
+    public static TableLayout measure(String[] headers, List<String[]> cells, float tableWidth, GlyphWidths headerWidths,
+            GlyphWidths bodyWidths, float fontSize, float leading, float top, float pageTop, float bottom) throws IOException {
+        int columns = headers.length;
+        float[] minimum = new float[columns];
+        float[] natural = new float[columns];
+        // Width of each cell on one line, in glyph space units
+        float[] headerUnits = new float[columns];
+        float[][] cellUnits = new float[cells.size()][columns];
+        for (int i = 0; i < columns; i++) {
+            headerUnits[i] = fit(headers[i], headerWidths, fontSize, minimum, natural, i);
+            for (int r = 0; r < cells.size(); r++) {
+                cellUnits[r][i] = fit(cell(cells.get(r), i), bodyWidths, fontSize, minimum, natural, i);
+            }
+        }
+        float[] columnWidths = columnWidths(tableWidth, minimum, natural);
+
+        Row header = row(headers, headerUnits, columnWidths, headerWidths, fontSize, leading);
+        List<Row> rows = new ArrayList<>(cells.size());
+        float y = top - header.height();
+        for (int r = 0; r < cells.size(); r++) {
+            Row row = row(cells.get(r), cellUnits[r], columnWidths, bodyWidths, fontSize, leading);
+            if (y - row.height() < bottom) {
+                row = new Row(row.cells(), row.height(), true);
+                y = pageTop - header.height();
+            }
+            rows.add(row);
+            y -= row.height();
+        }
+        return new TableLayout(columnWidths, tableWidth, fontSize, leading, header, List.copyOf(rows));
+    }
+
+    private static String cell(String[] row, int column) {
+        return column < row.length && row[column] != null ? row[column] : "";
+    }
+
+    /**
+     * Widens column {@code i} to its widest word and its whole text on one line, padding
+     * included, and returns the width of the whole text in glyph space units.
+     */
+    private static float fit(String text, GlyphWidths widths, float fontSize, float[] minimum, float[] natural, int i) throws IOException {
+        float total = 0;
+        float word = 0;
+        float widestWord = 0;
+        for (int k = 0; k < text.length(); ) {
+            int codePoint = text.codePointAt(k);
+            float units = widths.units(codePoint);
+            total += units;
+            word = codePoint == ' ' ? 0 : word + units;
+            widestWord = Math.max(widestWord, word);
+            k += Character.charCount(codePoint);
+        }
+        minimum[i] = Math.max(minimum[i], widestWord / 1000 * fontSize + PADDING);
+        natural[i] = Math.max(natural[i], total / 1000 * fontSize + PADDING);
+        return total;
+    }
+
+    /**
+     * Every column gets its whole content on one line when the table is wide enough, and
+     * the room left is shared equally. Otherwise every column gets at least its widest
+     * word, and the rest goes to the columns with the most text left to wrap. When even
+     * the widest words do not fit, the narrow columns keep theirs and the widest columns
+     * share what is left, their words are cut.
+     */
+    private static float[] columnWidths(float tableWidth, float[] minimum, float[] natural) {
+        int columns = natural.length;
+        float minimumTotal = 0;
+        float naturalTotal = 0;
+        for (int i = 0; i < columns; i++) {
+            minimumTotal += minimum[i];
+            naturalTotal += natural[i];
+        }
+
+        float[] widths = new float[columns];
+        if (naturalTotal <= tableWidth) {
+            for (int i = 0; i < columns; i++) {
+                widths[i] = natural[i] + (tableWidth - naturalTotal) / columns;
+            }
+        } else if (minimumTotal <= tableWidth) {
+            for (int i = 0; i < columns; i++) {
+                widths[i] = minimum[i] + (tableWidth - minimumTotal) * (natural[i] - minimum[i]) / (naturalTotal - minimumTotal);
+            }
+        } else {
+            Integer[] narrowestFirst = new Integer[columns];
+            for (int i = 0; i < columns; i++) {
+                narrowestFirst[i] = i;
+            }
+            Arrays.sort(narrowestFirst, Comparator.comparingDouble(i -> minimum[i]));
+            float left = tableWidth;
+            float minimumLeft = minimumTotal;
+            for (int k = 0; k < columns; k++) {
+                int i = narrowestFirst[k];
+                if (minimum[i] <= left / (columns - k)) {
+                    widths[i] = minimum[i];
+                } else {
+                    widths[i] = left * minimum[i] / minimumLeft;
+                }
+                left -= widths[i];
+                minimumLeft -= minimum[i];
+            }
+        }
+        return widths;
+    }
+
+    /** @param units width of each cell on one line, as measured by {@link #fit} */
+    private static Row row(String[] cells, float[] units, float[] columnWidths, GlyphWidths widths, float fontSize, float leading)
+            throws IOException {
+        List<List<LineBreaker.Line>> lines = new ArrayList<>(columnWidths.length);
+        int maxLines = 1;
+        for (int i = 0; i < columnWidths.length; i++) {
+            String text = cell(cells, i);
+            float maxWidth = columnWidths[i] - PADDING;
+            // The single line LineBreaker would give, which drops spaces at either end
+            boolean oneLine = !text.isEmpty() && text.charAt(0) != ' ' && text.charAt(text.length() - 1) != ' '
+                    && units[i] / 1000 * fontSize <= maxWidth;
+            List<LineBreaker.Line> cellLines = oneLine
+                    ? List.of(new LineBreaker.Line(text, units[i] / 1000 * fontSize))
+                    : List.copyOf(LineBreaker.lines(text, widths, fontSize, maxWidth, true));
+            lines.add(cellLines);
+            maxLines = Math.max(maxLines, cellLines.size());
+        }
+        return new Row(List.copyOf(lines), maxLines * leading, false);
+    }
+
+    public float getColumnWidth(int column) {
+        return columnWidths[column];
+    }
+
+    public int getColumnCount() {
+        return columnWidths.length;
+    }
+
+    public float getWidth() {
+        return width;
+    }
+
+    public float getFontSize() {
+        return fontSize;
+    }
+
+    public float getLeading() {
+        return leading;
+    }
+
+    public Row getHeader() {
+        return header;
+    }
+
+    public List<Row> getRows() {
+        return rows;
+    }
+}
@@ -0,0 +1,78 @@
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bytes received per endpoint, as they came over the wire (compressed) and once decoded.
+ */
+public class TransferStats {
+    private final Map<String, Counters> endpoints = new ConcurrentHashMap<>();
+
+    public void add(String endpoint, long wireBytes, long decodedBytes) {
+        Counters counters = endpoints.computeIfAbsent(endpoint, key -> new Counters());
+        counters.responses.increment();
+        counters.wire.add(wireBytes);
+        counters.decoded.add(decodedBytes);
+    }
+
+    public void print(PrintStream out) {
+        long totalWire = 0;
+        long totalDecoded = 0;
+        out.println("Transfer per endpoint (responses, received bytes, decoded bytes):");
+        for (Map.Entry<String, Counters> entry : new TreeMap<>(endpoints).entrySet()) {
+            Counters counters = entry.getValue();
+            out.printf("  %-45s %6d %12d %12d%n", entry.getKey(), counters.responses.sum(), counters.wire.sum(), counters.decoded.sum());
+            totalWire += counters.wire.sum();
+            totalDecoded += counters.decoded.sum();
+        }
+        out.printf("  %-45s %6s %12d %12d%n", "total", "", totalWire, totalDecoded);
+    }
+
+    private static class Counters {
+        final LongAdder responses = new LongAdder();
+        final LongAdder wire = new LongAdder();
+        final LongAdder decoded = new LongAdder();
+    }
+
+    static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        long count() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,373 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.zip.GZIPOutputStream;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stand-in for the SonarQube endpoints the report calls, serving a
+ * {@link SyntheticProject}. Paging (including the 10,000 result window) and the
+ * severities/types/directories facets behave like SonarQube; latency and errors can be
+ * injected. Meant to measure how report generation scales, e.g.
+ * <pre>
+ * mvn test-compile
+ * java -cp target/test-classes:target/sonar-report-1.0-jar-with-dependencies.jar SonarStandIn --issues 100000 --latency-ms 20
+ * </pre>
+ */
+public class SonarStandIn {
+    static final DateTimeFormatter SONAR_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ").withZone(ZoneOffset.UTC);
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_RESULTS = 10_000;
+
+    private final SyntheticProject project;
+    private final int latencyMillis;
+    private final int jitterMillis;
+    private final double errorRate;
+    private final int errorStatus;
+
+    public SonarStandIn(SyntheticProject project, int latencyMillis, int jitterMillis, double errorRate, int errorStatus) {
+        this.project = project;
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.errorRate = errorRate;
+        this.errorStatus = errorStatus;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected --option value pairs, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        int port = Integer.parseInt(options.getOrDefault("port", "9000"));
+        long start = System.nanoTime();
+        SyntheticProject project = new SyntheticProject(
+                options.getOrDefault("project", "synthetic"),
+                Integer.parseInt(options.getOrDefault("issues", "1000")),
+                Integer.parseInt(options.getOrDefault("hotspots", "100")),
+                Integer.parseInt(options.getOrDefault("rules", "200")),
+                Integer.parseInt(options.getOrDefault("files", "500")),
+                Integer.parseInt(options.getOrDefault("languages", "3")),
+                Long.parseLong(options.getOrDefault("seed", "1")));
+        SonarStandIn standIn = new SonarStandIn(project,
+                Integer.parseInt(options.getOrDefault("latency-ms", "0")),
+                Integer.parseInt(options.getOrDefault("jitter-ms", "0")),
+                Double.parseDouble(options.getOrDefault("error-rate", "0")),
+                Integer.parseInt(options.getOrDefault("error-status", "503")));
+
+        HttpServer server = standIn.start(port, Integer.parseInt(options.getOrDefault("threads", "16")));
+        System.out.printf("Generated %d issues and %d hotspots in %d ms%n", project.issues, project.hotspots,
+                (System.nanoTime() - start) / 1_000_000);
+        System.out.println("Serving http://127.0.0.1:" + server.getAddress().getPort() + "/ for project " + project.key);
+    }
+
+    public HttpServer start(int port, int threads) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.setExecutor(Executors.newFixedThreadPool(threads));
+        server.createContext("/", this::handle);
+        server.start();
+        return server;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            inject();
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                send(exchange, errorStatus, error("Injected error"));
+                return;
+            }
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            String path = exchange.getRequestURI().getPath();
+            JSONObject body;
+            if (path.endsWith("/api/navigation/component")) {
+                body = navigation();
+            } else if (path.endsWith("/api/measures/component")) {
+                body = measures(query);
+            } else if (path.endsWith("/api/qualitygates/project_status")) {
+                body = new JSONObject().put("projectStatus", new JSONObject().put("status", "OK").put("conditions", new JSONArray()));
+            } else if (path.endsWith("/api/security_reports/show")) {
+                body = securityReport();
+            } else if (path.endsWith("/api/issues/search")) {
+                body = issues(query);
+            } else if (path.endsWith("/api/hotspots/search")) {
+                body = hotspots(query);
+            } else {
+                send(exchange, 404, error("Unknown url: " + path));
+                return;
+            }
+            send(exchange, 200, body);
+        } catch (BadRequest e) {
+            send(exchange, 400, error(e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void inject() throws InterruptedException {
+        int delay = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextInt(jitterMillis + 1) : 0);
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+    }
+
+    private JSONObject navigation() {
+        return new JSONObject()
+                .put("key", project.key)
+                .put("name", project.key)
+                .put("analysisDate", "2024-05-01T10:00:00+0000")
+                .put("branch", "main")
+                .put("qualityProfiles", project.qualityProfiles())
+                .put("qualityGate", new JSONObject().put("key", "1").put("name", "Sonar way"));
+    }
+
+    private JSONObject measures(Map<String, String> query) {
+        int[] byType = new int[SyntheticProject.TYPES.length];
+        for (int i = 0; i < project.issues; i++) {
+            byType[project.issueType[i]]++;
+        }
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("reliability_rating", rating(byType[0]));
+        values.put("security_rating", rating(byType[1]));
+        values.put("security_review_rating", rating(project.hotspots));
+        values.put("software_quality_maintainability_rating", rating(byType[2] / 10));
+        values.put("coverage", "72.4");
+        values.put("duplicated_lines_density", "3.1");
+        values.put("comment_lines_density", "12.5");
+        values.put("ncloc", Integer.toString(project.files.length * 250));
+        values.put("complexity", Integer.toString(project.files.length * 30));
+        values.put("cognitive_complexity", Integer.toString(project.files.length * 25));
+        values.put("tests", "1200");
+        values.put("test_success_density", "99.2");
+        values.put("skipped_tests", "4");
+        values.put("test_errors", "1");
+        values.put("test_failures", "8");
+        values.put("reliability_remediation_effort", Integer.toString(byType[0] * 15));
+        values.put("security_remediation_effort", Integer.toString(byType[1] * 30));
+        values.put("sqale_index", Integer.toString(byType[2] * 5));
+        values.put("ncloc_language_distribution", project.languageDistribution());
+
+        Set<String> requested = new HashSet<>(Arrays.asList(query.getOrDefault("metricKeys", "").split(",")));
+        JSONArray measures = new JSONArray();
+        values.forEach((metric, value) -> {
+            if (requested.contains(metric)) {
+                measures.put(new JSONObject().put("metric", metric).put("value", value));
+            }
+        });
+        return new JSONObject().put("component", new JSONObject().put("key", project.key).put("measures", measures));
+    }
+
+    private static String rating(int findings) {
+        int rating = findings == 0 ? 1 : Math.min(5, 2 + (int) Math.log10(findings));
+        return rating + ".0";
+    }
+
+    private JSONObject securityReport() {
+        int[] vulnerabilities = new int[SyntheticProject.CATEGORIES.length];
+        int[] hotspots = new int[SyntheticProject.CATEGORIES.length];
+        for (int i = 0; i < project.issues; i++) {
+            if (project.issueType[i] == 1) {
+                vulnerabilities[project.issueRule[i] % vulnerabilities.length]++;
+            }
+        }
+        for (int i = 0; i < project.hotspots; i++) {
+            hotspots[project.hotspotCategory[i]]++;
+        }
+        JSONArray categories = new JSONArray();
+        for (int c = 0; c < SyntheticProject.CATEGORIES.length; c++) {
+            categories.put(new JSONObject()
+                    .put("category", SyntheticProject.CATEGORIES[c])
+                    .put("vulnerabilities", vulnerabilities[c])
+                    .put("vulnerabilityRating", Integer.parseInt(rating(vulnerabilities[c]).substring(0, 1)))
+                    .put("toReviewSecurityHotspots", hotspots[c])
+                    .put("reviewedSecurityHotspots", 0)
+                    .put("securityReviewRating", Integer.parseInt(rating(hotspots[c]).substring(0, 1))));
+        }
+        return new JSONObject().put("categories", categories);
+    }
+
+    private JSONObject issues(Map<String, String> query) throws BadRequest {
+        requireProject(query.get("componentKeys"));
+        IntPredicate filter = i -> true;
+        filter = and(filter, query.get("severities"), SyntheticProject.SEVERITIES, i -> project.issueSeverity[i]);
+        filter = and(filter, query.get("types"), SyntheticProject.TYPES, i -> project.issueType[i]);
+        if (query.containsKey("directories")) {
+            Set<String> directories = new HashSet<>(Arrays.asList(query.get("directories").split(",")));
+            filter = filter.and(i -> directories.contains(project.directories[project.issueFile[i]]));
+        }
+        if (query.containsKey("createdAfter")) {
+            Instant after = date(query.get("createdAfter"));
+            filter = filter.and(i -> !project.created(i).isBefore(after));
+        }
+        if (query.containsKey("createdBefore")) {
+            Instant before = date(query.get("createdBefore"));
+            filter = filter.and(i -> project.created(i).isBefore(before));
+        }
+        int[] matches = matches(project.issues, filter);
+
+        JSONObject response = page(query, matches, "issues", project::issue);
+        String facets = query.get("facets");
+        if (facets != null) {
+            JSONArray facetArray = new JSONArray();
+            for (String facet : facets.split(",")) {
+                switch (facet) {
+                    case "severities":
+                        facetArray.put(facet(facet, matches, i -> SyntheticProject.SEVERITIES[project.issueSeverity[i]]));
+                        break;
+                    case "types":
+                        facetArray.put(facet(facet, matches, i -> SyntheticProject.TYPES[project.issueType[i]]));
+                        break;
+                    case "directories":
+                        facetArray.put(facet(facet, matches, i -> project.directories[project.issueFile[i]]));
+                        break;
+                    default:
+                        throw new BadRequest("Unsupported facet: " + facet);
+                }
+            }
+            response.put("facets", facetArray);
+        }
+        return response;
+    }
+
+    private JSONObject hotspots(Map<String, String> query) throws BadRequest {
+        requireProject(query.get("project"));
+        IntPredicate filter = and(i -> true, query.get("sonarsourceSecurity"), SyntheticProject.CATEGORIES, i -> project.hotspotCategory[i]);
+        return page(query, matches(project.hotspots, filter), "hotspots", project::hotspot);
+    }
+
+    private void requireProject(String key) throws BadRequest {
+        if (!project.key.equals(key)) {
+            throw new BadRequest("Component key '" + key + "' not found");
+        }
+    }
+
+    private static IntPredicate and(IntPredicate filter, String values, String[] names, IntFunction<Byte> column) {
+        if (values == null) {
+            return filter;
+        }
+        boolean[] accepted = new boolean[names.length];
+        Set<String> requested = new HashSet<>(Arrays.asList(values.split(",")));
+        for (int v = 0; v < names.length; v++) {
+            accepted[v] = requested.contains(names[v]);
+        }
+        return filter.and(i -> accepted[column.apply(i)]);
+    }
+
+    private static int[] matches(int count, IntPredicate filter) {
+        int[] matches = new int[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (filter.test(i)) {
+                matches[size++] = i;
+            }
+        }
+        return Arrays.copyOf(matches, size);
+    }
+
+    private static JSONObject page(Map<String, String> query, int[] matches, String arrayKey, IntFunction<JSONObject> item) throws BadRequest {
+        int pageIndex = Integer.parseInt(query.getOrDefault("p", "1"));
+        int pageSize = Integer.parseInt(query.getOrDefault("ps", "100"));
+        if (pageSize > MAX_PAGE_SIZE) {
+            throw new BadRequest("'ps' value (" + pageSize + ") must be less than " + MAX_PAGE_SIZE);
+        }
+        if ((long) pageIndex * pageSize > MAX_RESULTS) {
+            throw new BadRequest("Can return only the first " + MAX_RESULTS + " results. " + (long) pageIndex * pageSize + "th result asked.");
+        }
+        JSONArray items = new JSONArray();
+        int from = (pageIndex - 1) * pageSize;
+        for (int i = from; i < Math.min(matches.length, from + pageSize); i++) {
+            items.put(item.apply(matches[i]));
+        }
+        return new JSONObject()
+                .put("paging", new JSONObject().put("pageIndex", pageIndex).put("pageSize", pageSize).put("total", matches.length))
+                .put(arrayKey, items)
+                .put("components", new JSONArray());
+    }
+
+    private static JSONObject facet(String property, int[] matches, IntFunction<String> value) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i : matches) {
+            counts.merge(value.apply(i), 1, Integer::sum);
+        }
+        JSONArray values = new JSONArray();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entry -> values.put(new JSONObject().put("val", entry.getKey()).put("count", entry.getValue())));
+        return new JSONObject().put("property", property).put("values", values);
+    }
+
+    private static Instant date(String value) throws BadRequest {
+        try {
+            return ZonedDateTime.parse(value, SONAR_DATE).toInstant();
+        } catch (RuntimeException e) {
+            throw new BadRequest("Date '" + value + "' cannot be parsed");
+        }
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0) {
+                    query.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                            URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return query;
+    }
+
+    private static JSONObject error(String message) {
+        return new JSONObject().put("errors", new JSONArray().put(new JSONObject().put("msg", message)));
+    }
+
+    private static void send(HttpExchange exchange, int status, JSONObject body) throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(status, 0);
+            try (OutputStream out = new GZIPOutputStream(exchange.getResponseBody())) {
+                out.write(bytes);
+            }
+        } else {
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static class BadRequest extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        BadRequest(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+import java.time.Instant;
+import java.util.SplittableRandom;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Deterministic synthetic SonarQube project for load testing: the same parameters and
+ * seed always give the same findings. Findings are held as primitive columns so a
+ * million of them stay cheap, and are only turned into JSON a page at a time.
+ */
+public class SyntheticProject {
+    static final String[] SEVERITIES = { "INFO", "MINOR", "MAJOR", "CRITICAL", "BLOCKER" };
+    static final String[] TYPES = { "BUG", "VULNERABILITY", "CODE_SMELL" };
+    static final String[] PROBABILITIES = { "LOW", "MEDIUM", "HIGH" };
+    static final String[] CATEGORIES = {
+        "sql-injection", "command-injection", "path-traversal-injection", "xss", "xxe", "dos", "ssrf", "csrf",
+        "weak-cryptography", "auth", "insecure-conf", "encrypt-data", "permission", "others"
+    };
+    private static final String[] LANGUAGES = { "java", "js", "ts", "py", "cs", "go", "kotlin", "xml" };
+    private static final Instant FIRST_CREATION = Instant.parse("2020-01-01T00:00:00Z");
+    private static final int CREATION_SPAN_SECONDS = 4 * 365 * 24 * 3600;
+    private static final int FILES_PER_DIRECTORY = 20;
+
+    final String key;
+    final int languages;
+    final int rules;
+    final String[] files;
+    final String[] directories;
+
+    final int issues;
+    final byte[] issueSeverity;
+    final byte[] issueType;
+    final int[] issueRule;
+    final int[] issueFile;
+    final int[] issueLine;
+    final int[] issueCreated;
+
+    final int hotspots;
+    final byte[] hotspotProbability;
+    final byte[] hotspotCategory;
+    final int[] hotspotRule;
+    final int[] hotspotFile;
+    final int[] hotspotLine;
+
+    public SyntheticProject(String key, int issues, int hotspots, int rules, int fileCount, int languages, long seed) {
+        this.key = key;
+        this.languages = Math.max(1, Math.min(languages, LANGUAGES.length));
+        this.rules = Math.max(this.languages, rules);
+        this.files = new String[Math.max(this.languages, fileCount)];
+        this.directories = new String[files.length];
+        for (int i = 0; i < files.length; i++) {
+            directories[i] = "src/module" + (i / FILES_PER_DIRECTORY);
+            files[i] = directories[i] + "/File" + i + "." + LANGUAGES[i % this.languages];
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        this.issues = issues;
+        issueSeverity = new byte[issues];
+        issueType = new byte[issues];
+        issueRule = new int[issues];
+        issueFile = new int[issues];
+        issueLine = new int[issues];
+        issueCreated = new int[issues];
+        for (int i = 0; i < issues; i++) {
+            int file = random.nextInt(files.length);
+            issueFile[i] = file;
+            issueRule[i] = ruleOf(file, random);
+            // Severity and type follow the rule, as they do in SonarQube
+            issueSeverity[i] = (byte) (issueRule[i] % SEVERITIES.length);
+            issueType[i] = (byte) (issueRule[i] / SEVERITIES.length % TYPES.length);
+            // About one issue in a hundred is file level, without a text range
+            issueLine[i] = random.nextInt(100) == 0 ? 0 : 1 + random.nextInt(2000);
+            issueCreated[i] = random.nextInt(CREATION_SPAN_SECONDS);
+        }
+
+        this.hotspots = hotspots;
+        hotspotProbability = new byte[hotspots];
+        hotspotCategory = new byte[hotspots];
+        hotspotRule = new int[hotspots];
+        hotspotFile = new int[hotspots];
+        hotspotLine = new int[hotspots];
+        for (int i = 0; i < hotspots; i++) {
+            int file = random.nextInt(files.length);
+            hotspotFile[i] = file;
+            hotspotRule[i] = ruleOf(file, random);
+            hotspotCategory[i] = (byte) (hotspotRule[i] % CATEGORIES.length);
+            hotspotProbability[i] = (byte) (hotspotRule[i] % PROBABILITIES.length);
+            hotspotLine[i] = 1 + random.nextInt(2000);
+        }
+    }
+
+    /** A rule of the language of {@code file}. */
+    private int ruleOf(int file, SplittableRandom random) {
+        int language = file % languages;
+        int perLanguage = rules / languages;
+        return random.nextInt(perLanguage) * languages + language;
+    }
+
+    String ruleKey(int rule) {
+        return LANGUAGES[rule % languages] + ":S" + (100 + rule);
+    }
+
+    String component(int file) {
+        return key + ":" + files[file];
+    }
+
+    Instant created(int issue) {
+        return FIRST_CREATION.plusSeconds(issueCreated[issue]);
+    }
+
+    JSONObject issue(int i) {
+        JSONObject issue = new JSONObject()
+                .put("key", "AY" + key.hashCode() + "-I" + i)
+                .put("rule", ruleKey(issueRule[i]))
+                .put("severity", SEVERITIES[issueSeverity[i]])
+                .put("type", TYPES[issueType[i]])
+                .put("component", component(issueFile[i]))
+                .put("project", key)
+                .put("message", "Synthetic issue raised by rule " + ruleKey(issueRule[i]) + ", fix it or mark it as won't fix")
+                .put("status", "OPEN")
+                .put("creationDate", SonarStandIn.SONAR_DATE.format(created(i)))
+                .put("tags", new JSONArray());
+        if (issueLine[i] > 0) {
+            issue.put("line", issueLine[i]);
+            issue.put("textRange", new JSONObject()
+                    .put("startLine", issueLine[i]).put("endLine", issueLine[i]).put("startOffset", 0).put("endOffset", 40));
+        }
+        return issue;
+    }
+
+    JSONObject hotspot(int i) {
+        return new JSONObject()
+                .put("key", "AY" + key.hashCode() + "-H" + i)
+                .put("component", component(hotspotFile[i]))
+                .put("project", key)
+                .put("securityCategory", CATEGORIES[hotspotCategory[i]])
+                .put("vulnerabilityProbability", PROBABILITIES[hotspotProbability[i]])
+                .put("status", "TO_REVIEW")
+                .put("line", hotspotLine[i])
+                .put("message", "Make sure that using rule " + ruleKey(hotspotRule[i]) + " here is safe")
+                .put("ruleKey", ruleKey(hotspotRule[i]))
+                .put("textRange", new JSONObject()
+                        .put("startLine", hotspotLine[i]).put("endLine", hotspotLine[i]).put("startOffset", 0).put("endOffset", 40));
+    }
+
+    JSONArray qualityProfiles() {
+        JSONArray profiles = new JSONArray();
+        for (int i = 0; i < languages; i++) {
+            profiles.put(new JSONObject().put("key", "qp-" + LANGUAGES[i]).put("name", "Sonar way").put("language", LANGUAGES[i]));
+        }
+        return profiles;
+    }
+
+    /** Lines of code per language, in the {@code ncloc_language_distribution} format. */
+    String languageDistribution() {
+        StringBuilder distribution = new StringBuilder();
+        for (int i = 0; i < languages; i++) {
+            int count = (files.length - i + languages - 1) / languages;
+            if (distribution.length() > 0) {
+                distribution.append(';');
+            }
+            distribution.append(LANGUAGES[i]).append('=').append(count * 250);
+        }
+        return distribution.toString();
+    }
+}